@@ -0,0 +1,355 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Class that converts many NFA specification files to DFAs in one JVM
+ *
+ * Usage: java BatchConverter [-j threads] [-m] [-n] [-t] [-o outputDir] dir|glob ...
+ *
+ *   dir     converts every nfa.*.txt file in the directory
+ *   glob    converts every file matching the glob, e.g. specs/nfa.1.*.txt
+ *   -j      number of worker threads (default: number of processors)
+ *   -m      minimize each DFA before writing it
+ *   -n      number the DFA states instead of naming them after their NFA states
+ *   -t      remove dead states before writing, leaving partial DFAs
+ *   -o      directory the DFAs are written to (default: next to each NFA)
+ *
+ * A target that matches no files, or a glob with a wildcard outside its file name,
+ * stops the batch before anything is converted.
+ *
+ * Each NFA file nfa.X.txt is written as dfa.X.txt. Files that would be written to the
+ * same output path, e.g. nfa.1.txt from two directories with -o, all fail up front
+ * instead of overwriting each other. Parsing, conversion and output
+ * run as separate stages on a bounded pool, so one file is parsed while others are
+ * converted or written, and only a few files are held in memory at a time.
+ */
+
+public class BatchConverter {
+
+    /*
+      Glob used for files in a directory argument
+     */
+    private static final String DEFAULT_GLOB = "nfa.*.txt";
+
+    /*
+      Timings and outcome of converting one file
+     */
+    static class Result {
+        final Path input;
+        Path output;
+        long parseNanos, convertNanos, writeNanos;
+        int states;
+        Throwable error;
+
+        Result(Path input){
+            this.input = input;
+        }
+    }
+
+    /*
+      Number of worker threads
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /*
+      Whether each DFA is minimized before it is written
+     */
+    private boolean minimize = false;
+
+    /*
+      Whether DFA states are numbered rather than named after their NFA states
+     */
+    private boolean compactNames = false;
+
+    /*
+      Whether dead states are removed from each DFA before it is written
+     */
+    private boolean trim = false;
+
+    /*
+      Directory the DFAs are written to, null to write next to each NFA
+     */
+    private Path outputDir = null;
+
+    /**
+     * Parses the command line and converts every specified file
+     *
+     * @param args options followed by directories or globs
+     */
+
+    public static void main(String[] args){
+        BatchConverter converter = new BatchConverter();
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < args.length; i++){
+            switch (args[i]){
+                case "-j":
+                    if (i + 1 == args.length || !args[i + 1].matches("[1-9][0-9]{0,4}"))
+                        usage();
+                    converter.threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-m":
+                    converter.minimize = true;
+                    break;
+                case "-n":
+                    converter.compactNames = true;
+                    break;
+                case "-t":
+                    converter.trim = true;
+                    break;
+                case "-o":
+                    if (i + 1 == args.length)
+                        usage();
+                    converter.outputDir = Paths.get(args[++i]);
+                    break;
+                default:
+                    targets.add(args[i]);
+                    break;
+            }
+        }
+        if (targets.isEmpty())
+            usage();
+        List<Path> files;
+        try{
+            files = converter.findFiles(targets);
+        } catch (IOException e){
+            System.out.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        try{
+            List<Result> results = converter.convert(files);
+            if (converter.printSummary(results) > 0)
+                System.exit(1);
+        } catch (InterruptedException e){
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Function that prints the usage message and exits
+     */
+
+    private static void usage(){
+        System.out.println("usage: java BatchConverter [-j threads] [-m] [-n] [-t] [-o outputDir] dir|glob ...");
+        System.exit(1);
+    }
+
+    /**
+     * Function that expands directories and globs into a sorted list of files. Every
+     * target must match at least one file, and only the file name part of a glob may
+     * hold wildcards
+     *
+     * @param targets directories or globs
+     * @return files to convert
+     * @throws IOException listing every target that matches no files or cannot be read
+     */
+
+    public List<Path> findFiles(List<String> targets) throws IOException{
+        Set<Path> files = new TreeSet<>();
+        List<String> problems = new ArrayList<>();
+        for (String target : targets){
+            Path path = Paths.get(target);
+            Path dir;
+            String glob;
+            if (Files.isDirectory(path)){
+                dir = path;
+                glob = DEFAULT_GLOB;
+            } else {
+                dir = path.getParent() == null ? Paths.get(".") : path.getParent();
+                glob = path.getFileName().toString();
+            }
+            if (dir.toString().matches(".*[*?\\[{].*")){
+                problems.add(target + ": wildcards are only supported in the file name");
+                continue;
+            }
+            if (!Files.isDirectory(dir)){
+                problems.add(target + ": no such directory " + dir);
+                continue;
+            }
+            int matched = 0;
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)){
+                for (Path file : stream){
+                    if (Files.isRegularFile(file)){
+                        files.add(file);
+                        matched++;
+                    }
+                }
+            } catch (PatternSyntaxException e){
+                problems.add(target + ": bad glob, " + e.getDescription());
+                continue;
+            } catch (IOException e){
+                problems.add(target + ": " + e);
+                continue;
+            }
+            if (matched == 0)
+                problems.add(target + ": no files match");
+        }
+        if (!problems.isEmpty())
+            throw new IOException("cannot expand " + problems.size() + " target(s):\n  " + String.join("\n  ", problems));
+        return new ArrayList<>(files);
+    }
+
+    /**
+     * Function that converts every file on the worker pool and waits for them to finish
+     *
+     * @param files NFA specification files
+     * @return the result for each file, in the same order
+     */
+
+    public List<Result> convert(List<Path> files) throws InterruptedException{
+        Map<Path, List<Path>> outputs = new HashMap<>();
+        for (Path file : files)
+            outputs.computeIfAbsent(outputPath(file), k -> new ArrayList<>()).add(file);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        // bounds the number of files between parsing and writing
+        Semaphore inFlight = new Semaphore(2 * threads);
+        List<Result> results = new ArrayList<>();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        try{
+            for (Path file : files){
+                Result result = new Result(file);
+                results.add(result);
+                result.output = outputPath(file);
+                List<Path> sharing = outputs.get(result.output);
+                if (sharing.size() > 1){
+                    result.error = new IOException("output " + result.output + " is shared by " + sharing);
+                    continue;
+                }
+                inFlight.acquire();
+                futures.add(CompletableFuture.supplyAsync(() -> parse(result), pool)
+                        .thenApplyAsync(nfa -> convert(result, nfa), pool)
+                        .thenAcceptAsync(nfa -> write(result, nfa), pool)
+                        .whenComplete((ignored, error) -> {
+                            if (error != null && result.error == null)
+                                result.error = error instanceof CompletionException ? error.getCause() : error;
+                            inFlight.release();
+                        }));
+            }
+            for (CompletableFuture<?> future : futures){
+                try{
+                    future.join();
+                } catch (CompletionException e){
+                    // recorded in the file's result
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /**
+     * Function that parses one NFA specification file
+     *
+     * @param result result the timing is recorded in
+     * @return the parsed NFA
+     */
+
+    private NfaToDfa parse(Result result){
+        long start = System.nanoTime();
+        try{
+            NfaToDfa nfa = new NfaToDfa(result.input.toString());
+            nfa.setCompactNames(compactNames);
+            return nfa;
+        } catch (IOException e){
+            throw new CompletionException(e);
+        } finally {
+            result.parseNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Function that converts one NFA to its DFA, trimming and minimizing it if requested
+     *
+     * @param result result the timing is recorded in
+     * @param nfa the parsed NFA
+     * @return the same NfaToDfa, now holding the DFA
+     */
+
+    private NfaToDfa convert(Result result, NfaToDfa nfa){
+        long start = System.nanoTime();
+        nfa.convertNfa();
+        if (trim)
+            nfa.trimDeadStates();
+        if (minimize)
+            nfa.minimizeDfa();
+        result.states = nfa.getDfaTable().stateCount();
+        result.convertNanos = System.nanoTime() - start;
+        return nfa;
+    }
+
+    /**
+     * Function that returns where the DFA of an NFA file is written, next to the NFA
+     * or in the output directory
+     *
+     * @param input NFA specification file
+     * @return normalized absolute path of the DFA file
+     */
+
+    private Path outputPath(Path input){
+        String name = input.getFileName().toString();
+        name = name.startsWith("nfa.") ? "dfa." + name.substring(4) : name + ".dfa";
+        Path dir = outputDir != null ? outputDir : input.toAbsolutePath().getParent();
+        return dir.resolve(name).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Function that writes one DFA to the output path recorded in its result
+     *
+     * @param result result the timing is recorded in
+     * @param nfa NfaToDfa holding the DFA
+     */
+
+    private void write(Result result, NfaToDfa nfa){
+        long start = System.nanoTime();
+        try{
+            Files.createDirectories(result.output.getParent());
+            try (FileWriter fr = new FileWriter(new File(result.output.toString()))){
+                fr.write(nfa.fileOutput(result.output.toString()));
+            }
+        } catch (IOException e){
+            throw new CompletionException(e);
+        } finally {
+            result.writeNanos = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Function that prints the timings of every file and lists the failures
+     *
+     * @param results results of the conversion
+     * @return number of files that failed
+     */
+
+    public int printSummary(List<Result> results){
+        int failures = 0;
+        long parse = 0, convert = 0, write = 0;
+        System.out.printf("%-40s %10s %10s %10s %8s%n", "file", "parse ms", "convert ms", "write ms", "states");
+        for (Result result : results){
+            if (result.error != null){
+                failures++;
+                continue;
+            }
+            parse += result.parseNanos;
+            convert += result.convertNanos;
+            write += result.writeNanos;
+            System.out.printf("%-40s %10.2f %10.2f %10.2f %8d%n", result.input, result.parseNanos / 1e6,
+                    result.convertNanos / 1e6, result.writeNanos / 1e6, result.states);
+        }
+        System.out.printf("%-40s %10.2f %10.2f %10.2f%n", "total (" + (results.size() - failures) + " files)",
+                parse / 1e6, convert / 1e6, write / 1e6);
+        if (failures > 0){
+            System.out.println(failures + " file(s) failed:");
+            for (Result result : results)
+                if (result.error != null)
+                    System.out.println("  " + result.input + ": " + result.error);
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+
+/**
+ * Class that measures how NFA to DFA conversion scales on generated NFAs
+ *
+ * Converts members of each NfaGenerator family at increasing sizes and prints one
+ * CSV row per conversion. A family stops growing once a conversion takes longer
+ * than the time limit or runs out of memory.
+ *
+ * Usage: java ConversionScaling [-limit seconds] [family ...]
+ *
+ * Families default to nth-from-end, random, epsilon-chain and epsilon-cycle.
+ * The random family uses edge density 2/n, epsilon ratio 0.25 and seed 262.
+ */
+
+public class ConversionScaling {
+
+    /*
+      Header of the CSV report
+     */
+    private static final String HEADER = "family,n,nfa_states,nfa_transitions,dfa_states,parse_ms,convert_ms,"
+            + "peak_heap_mb,direct_mb";
+
+    /**
+     * Runs the conversions and prints the CSV report
+     *
+     * @param args optional time limit and families
+     */
+
+    public static void main(String[] args){
+        long limitNanos = 10_000_000_000L;
+        List<String> families = new ArrayList<>();
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("-limit"))
+                limitNanos = (long) (Double.parseDouble(args[++i]) * 1e9);
+            else
+                families.add(args[i]);
+        }
+        if (families.isEmpty())
+            families = Arrays.asList("nth-from-end", "random", "epsilon-chain", "epsilon-cycle");
+
+        System.out.println(HEADER);
+        for (String family : families){
+            for (int n : sizes(family)){
+                String row;
+                try{
+                    row = measure(family, n);
+                } catch (OutOfMemoryError e){
+                    System.out.println(family + "," + n + ",,,,,,out of memory,");
+                    break;
+                } catch (IOException e){
+                    e.printStackTrace();
+                    break;
+                }
+                System.out.println(row);
+                String[] fields = row.split(",");
+                if (Double.parseDouble(fields[5]) + Double.parseDouble(fields[6]) > limitNanos / 1e6)
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Function that returns the sizes to try for a family, in increasing order
+     *
+     * @param family name of the family
+     * @return the sizes
+     */
+
+    private static int[] sizes(String family){
+        switch (family){
+            case "nth-from-end":
+                return new int[]{1, 2, 4, 6, 8, 10, 12, 14, 16, 18, 20, 22, 24};
+            case "random":
+                return new int[]{4, 8, 12, 16, 20, 24, 28, 32, 40, 48, 64, 96, 128};
+            default:
+                return new int[]{16, 64, 256, 1024, 4096, 16384, 65536};
+        }
+    }
+
+    /**
+     * Function that generates, parses and converts one NFA and reports the measurements
+     *
+     * @param family name of the family
+     * @param n size of the NFA
+     * @return the CSV row
+     */
+
+    private static String measure(String family, int n) throws IOException{
+        String spec = family.equals("random") ? NfaGenerator.random(n, 2.0 / n, 0.25, 262)
+                : NfaGenerator.generate(family, n);
+        File file = File.createTempFile("nfa.scaling.", ".txt");
+        try{
+            try (FileWriter fr = new FileWriter(file)){
+                fr.write(spec);
+            }
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                pool.resetPeakUsage();
+
+            long start = System.nanoTime();
+            NfaToDfa nfa = new NfaToDfa(file.getPath());
+            long parsed = System.nanoTime();
+            nfa.convertNfa();
+            long converted = System.nanoTime();
+
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+                if (pool.getType() == MemoryType.HEAP)
+                    peak += pool.getPeakUsage().getUsed();
+            long direct = 0;
+            for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+                if (pool.getName().equals("direct"))
+                    direct = pool.getMemoryUsed();
+
+            int nfaStates = family.equals("nth-from-end") ? n + 1 : n;
+            return String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.3f,%.3f,%.1f,%.1f", family, n, nfaStates,
+                    NfaGenerator.transitionCount(spec), nfa.getDfaTable().stateCount(), (parsed - start) / 1e6,
+                    (converted - parsed) / 1e6, peak / 1048576.0, direct / 1048576.0);
+        } finally {
+            file.delete();
+        }
+    }
+}
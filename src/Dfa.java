@@ -1,5 +1,6 @@
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -39,24 +40,25 @@ public class Dfa {
     /*
       Table containing all transition functions for the Dfa
      */
-    private Map<String, String> delta = new HashMap<>();
+    private DfaTable delta;
 
     /**
-     * Constructor for the Dfa Class. Reads the provided file and builds the Dfa
+     * Constructor for the Dfa Class. Reads the provided file and builds the Dfa.
+     * Lines are read with a BufferedReader, so loading takes time linear in the
+     * size of the file even when the Q line lists hundreds of thousands of states
      *
      * @param filename name of file containing the specifications for a Dfa
      */
 
     public Dfa(String filename) {
-        String s1, s2, line;
-        File file = new File(filename);
+        String line;
         String[] line_split;
         try {
-            Scanner scan = new Scanner(file);
+            BufferedReader reader = new BufferedReader(new FileReader(filename));
             int count = 0;
-            while (scan.hasNextLine()){
-                line = scan.nextLine();
-                if (line.charAt(0) == '#')
+            while ((line = reader.readLine()) != null){
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#')
                     continue;
                 else
                     count++;
@@ -67,33 +69,47 @@ public class Dfa {
                         break;
                     case 2:
                         line_split = line.split("\\s+");
-                        Collections.addAll(Sigma, line_split);
+                        if (line.charAt(0) != '@')
+                            Collections.addAll(Sigma, line_split);
+                        delta = new DfaTable(Sigma);
+                        for (String q : Q)
+                            delta.addState(q);
                         break;
                     case 3:
                         s = line;
+                        delta.setStart(delta.addState(s));
                         break;
                     case 4:
                         line_split = line.split("\\s+");
-                        Collections.addAll(F, line_split);
+                        if (line.charAt(0) != '@')
+                            Collections.addAll(F, line_split);
+                        for (String f : F)
+                            delta.setAccept(delta.addState(f), true);
                         break;
                     default:
                         line_split = line.split("\\s+");
-                        s1 = line_split[0] + ", " + line_split[1];
-                        s2 = line_split[2];
-                        delta.put(s1, s2);
+                        int symbol = delta.symbolIndex(line_split[1]);
+                        if (symbol == DfaTable.NONE) {
+                            System.out.println(line_split[1] + " not in alphabet " + Sigma);
+                            break;
+                        }
+                        delta.setTransition(delta.addState(line_split[0]), symbol, delta.addState(line_split[2]));
                         break;
                 }
             }
-            scan.close();
+            reader.close();
+            if (delta != null)
+                delta.freeze();
         }
-        catch (FileNotFoundException e) {
+        catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
      * Main function in the program. Takes user input and
-     * then passes it to the DFA constructor
+     * then passes it to the DFA constructor. With -p the matches are
+     * profiled and the hottest states and transitions are printed on exit
      *
      * @param args Possible commandline arguments
      */
@@ -101,12 +117,15 @@ public class Dfa {
     public static void main(String[] args) {
         boolean flag = true;
         boolean reject, trace;
-        String line, current_state, input_string;
+        String line;
+        TraceBuffer trace_buffer = new TraceBuffer(1 << 16);
         Scanner scanner = new Scanner(System.in);
         System.out.print("DFA Specification file name: ");
         String file_name = scanner.nextLine();
         Dfa dfa1 = new Dfa(file_name);
         dfa1.print_Dfa();
+        if (Arrays.asList(args).contains("-p"))
+            dfa1.delta.setProfiler(new DfaProfiler(dfa1.delta));
 
         while (flag){
             reject = false;
@@ -115,6 +134,8 @@ public class Dfa {
             line = scanner.nextLine();
             if (line.equals("")){
                 flag = false;
+                if (dfa1.delta.getProfiler() != null)
+                    dfa1.delta.getProfiler().report(System.out, 10);
                 System.out.println("goodbye");
             } else if(line.length() == 0){
                 if (dfa1.F.contains(dfa1.s))
@@ -124,31 +145,14 @@ public class Dfa {
             } else {
                 if (line.charAt(0) == '!')
                     trace = true;
-                String[] split_line = line.split("");
-                current_state = dfa1.s;
                 if (trace) {
-                    for (int x = 1; x < split_line.length; x++) {
-                        input_string = current_state + ", " + split_line[x];
-                        if (dfa1.delta.containsKey(input_string)) {
-                            current_state = dfa1.delta.get(input_string);
-                            System.out.println(input_string + " -> " + current_state);
-                        } else {
-                            reject = true;
-                            break;
-                        }
-                    }
+                    trace_buffer.clear();
+                    reject = !dfa1.delta.accepts(line.substring(1), trace_buffer);
+                    trace_buffer.print(System.out, dfa1.delta);
                 } else {
-                    for (int x = 0; x < split_line.length; x++) {
-                        input_string = current_state + ", " + split_line[x];
-                        if (dfa1.delta.containsKey(input_string))
-                            current_state = dfa1.delta.get(input_string);
-                        else {
-                            reject = true;
-                            break;
-                        }
-                    }
+                    reject = !dfa1.delta.accepts(line);
                 }
-                if (!reject && dfa1.F.contains(current_state))
+                if (!reject)
                     System.out.println("accept");
                 else
                     System.out.println("reject");
@@ -157,6 +161,16 @@ public class Dfa {
         scanner.close();
     }
 
+    /**
+     * Function that returns the transition table of the DFA
+     *
+     * @return the DFA's transition table
+     */
+
+    public DfaTable getTable(){
+        return delta;
+    }
+
     /**
      * Function that displays the DFA
      */
@@ -199,23 +213,25 @@ public class Dfa {
     }
 
     /**
-     * Function that takes a Map and returns its String representation
+     * Function that takes a transition table and returns its String representation
      *
-     * @param map Map to be printed
+     * @param table DfaTable to be printed
      * @return String representation of table
      */
 
-    public String state_builder(Map<String, String> map){
-        String line = "";
-        int count = 0;
-        int size = map.size();
-        for (String s : map.keySet()) {
-            count++;
-            if (count < size)
-                line += ("transition: (" + s + ") -> " + map.get(s) + "\n");
-            else
-                line += ("transition: (" + s + ") -> " + map.get(s));
+    public String state_builder(DfaTable table){
+        StringBuilder line = new StringBuilder();
+        for (int q = 0; q < table.stateCount(); q++) {
+            for (int a = 0; a < table.symbolCount(); a++) {
+                int next = table.next(q, a);
+                if (next == DfaTable.NONE)
+                    continue;
+                if (line.length() > 0)
+                    line.append("\n");
+                line.append("transition: (").append(table.stateName(q)).append(", ").append(table.symbol(a))
+                        .append(") -> ").append(table.stateName(next));
+            }
         }
-        return line;
+        return line.toString();
     }
 }
\ No newline at end of file
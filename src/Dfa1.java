@@ -5,6 +5,8 @@
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
@@ -17,6 +19,12 @@ public class Dfa1 {
     Map<String, String> delta;
     String s;
     Set<String> F;
+    TraceBuffer trace;
+    String[] stateNames;
+    Map<String, Integer> stateIds;
+    DfaTable profiled;
+    DfaProfiler profiler;
+    DfaProfiler.Stripe stripe;
 
     public Dfa1(String var1) throws FileNotFoundException {
         Scanner var2 = new Scanner(new File(var1));
@@ -150,27 +158,52 @@ public class Dfa1 {
             var1 = var1.substring(1);
         }
 
+        if (var2) {
+            this.numberStates();
+            this.trace.clear();
+        }
+
         int var3 = var1.length();
         String var4 = this.s;
+        String missing = null;
+        if (this.stripe != null) {
+            this.stripe.start(this.stateIds.getOrDefault(var4, -1));
+        }
 
         for(int var5 = 0; var5 < var3; ++var5) {
             char var6 = var1.charAt(var5);
             String var7 = var4 + "," + var6;
             String var8 = null;
             if (!this.delta.containsKey(var7)) {
-                System.out.println("no known transition from state " + var4 + " using symbol " + var6);
+                missing = "no known transition from state " + var4 + " using symbol " + var6;
                 var4 = null;
                 break;
             }
 
             var8 = (String)this.delta.get(var7);
             if (var2) {
-                System.out.println(var4 + "," + var6 + " -> " + var8);
+                this.trace.record(var5, this.stateIds.get(var4), var6, this.stateIds.get(var8));
+            }
+
+            if (this.stripe != null) {
+                this.stripe.step(this.stateIds.get(var4), this.profiled.symbolIndex(var6));
             }
 
             var4 = var8;
         }
 
+        if (var2) {
+            this.trace.print(System.out, (state) -> this.stateNames[state], (symbol) -> String.valueOf((char)symbol), ",");
+        }
+
+        if (missing != null) {
+            System.out.println(missing);
+        }
+
+        if (this.stripe != null) {
+            this.stripe.finish(var4 != null && this.F.contains(var4));
+        }
+
         if (var4 != null) {
             if (this.F.contains(var4)) {
                 System.out.println("accept");
@@ -181,7 +214,50 @@ public class Dfa1 {
         }
     }
 
+    private void numberStates() {
+        if (this.trace == null) {
+            this.trace = new TraceBuffer(65536);
+            this.stateNames = this.Q.toArray(new String[0]);
+            this.stateIds = new HashMap<>();
+
+            for(int id = 0; id < this.stateNames.length; ++id) {
+                this.stateIds.put(this.stateNames[id], id);
+            }
+        }
+
+    }
+
+    public void startProfiling() {
+        this.numberStates();
+        DfaTable table = new DfaTable(this.Sigma);
+        for(String name : this.stateNames) {
+            table.addState(name);
+        }
+
+        for(Map.Entry<String, String> transition : this.delta.entrySet()) {
+            String key = transition.getKey();
+            int comma = key.lastIndexOf(',');
+            int symbol = table.symbolIndex(key.substring(comma + 1));
+            if (symbol != DfaTable.NONE) {
+                table.setTransition(this.stateIds.get(key.substring(0, comma)), symbol, this.stateIds.get(transition.getValue()));
+            }
+        }
+
+        if (this.stateIds.containsKey(this.s)) {
+            table.setStart(this.stateIds.get(this.s));
+        }
+
+        for(String accepting : this.F) {
+            table.setAccept(this.stateIds.get(accepting), true);
+        }
+
+        this.profiled = table;
+        this.profiler = new DfaProfiler(table, 1);
+        this.stripe = this.profiler.stripe();
+    }
+
     public static void main(String[] var0) throws FileNotFoundException {
+        boolean profile = Arrays.asList(var0).contains("-p");
         Scanner var1 = new Scanner(System.in);
         System.out.print("DFA specification file name: ");
 
@@ -189,6 +265,10 @@ public class Dfa1 {
             String var2 = var1.nextLine();
             Dfa1 var3 = new Dfa1(var2);
             System.out.println(var3);
+            if (profile) {
+                var3.startProfiling();
+            }
+
             System.out.print("> ");
             String var4 = var1.nextLine();
 
@@ -198,6 +278,10 @@ public class Dfa1 {
                 var4 = var1.nextLine();
             }
 
+            if (var3.profiler != null) {
+                var3.profiler.report(System.out, 10);
+            }
+
             System.out.print("DFA specification file name: ");
         }
 
@@ -0,0 +1,244 @@
+import java.util.*;
+
+/**
+ * Class that checks whether two DFAs accept the same language
+ *
+ * Uses the Hopcroft-Karp union-find algorithm: pairs of states reachable by the
+ * same string are merged into one class, and the DFAs differ exactly when some
+ * class holds both an accept and a non-accept state. Pairs are explored in
+ * breadth-first order, so the string returned for differing DFAs is a shortest
+ * one. State names and transition order play no part, and missing transitions
+ * go to an implicit rejecting sink, so trimmed DFAs compare like complete ones.
+ *
+ * Usage: java DfaEquivalence spec1 spec2
+ */
+
+public class DfaEquivalence {
+
+    /*
+      The two DFAs being compared
+     */
+    private final DfaTable a, b;
+
+    /*
+      Node of the sink state of each DFA. Nodes 0..sinkA are a's states followed by
+      its sink, the remaining nodes are b's states followed by its sink
+     */
+    private final int sinkA, sinkB;
+
+    /*
+      Symbol id in a and in b for each symbol of the combined alphabet, -1 if absent
+     */
+    private final int[] symbolA, symbolB;
+
+    /*
+      Symbols of the combined alphabet
+     */
+    private final String[] symbols;
+
+    /*
+      Union-find parent of each node
+     */
+    private final int[] parent;
+
+    /*
+      Union-find rank of each node
+     */
+    private final byte[] rank;
+
+    /**
+     * Constructor for the DfaEquivalence class
+     *
+     * @param a the first DFA
+     * @param b the second DFA
+     */
+
+    public DfaEquivalence(DfaTable a, DfaTable b){
+        this.a = a;
+        this.b = b;
+        sinkA = a.stateCount();
+        sinkB = sinkA + 1 + b.stateCount();
+        Set<String> alphabet = new TreeSet<>();
+        for (int i = 0; i < a.symbolCount(); i++)
+            alphabet.add(a.symbol(i));
+        for (int i = 0; i < b.symbolCount(); i++)
+            alphabet.add(b.symbol(i));
+        symbols = alphabet.toArray(new String[0]);
+        symbolA = new int[symbols.length];
+        symbolB = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++){
+            symbolA[i] = a.symbolIndex(symbols[i]);
+            symbolB[i] = b.symbolIndex(symbols[i]);
+        }
+        parent = new int[sinkB + 1];
+        rank = new byte[sinkB + 1];
+    }
+
+    /**
+     * Compares two DFA specification files and prints a distinguishing string if they differ.
+     * Exits with status 1 if the DFAs are not equivalent
+     *
+     * @param args the two specification file names
+     */
+
+    public static void main(String[] args){
+        if (args.length != 2){
+            System.out.println("usage: java DfaEquivalence spec1 spec2");
+            System.exit(2);
+        }
+        DfaTable a = new Dfa(args[0]).getTable();
+        DfaTable b = new Dfa(args[1]).getTable();
+        if (a == null || b == null)
+            System.exit(2);
+        long start = System.nanoTime();
+        String witness = new DfaEquivalence(a, b).distinguishingString();
+        long elapsed = System.nanoTime() - start;
+        if (witness == null){
+            System.out.printf("equivalent (%.2f ms)%n", elapsed / 1e6);
+        } else {
+            System.out.printf("not equivalent (%.2f ms)%n", elapsed / 1e6);
+            System.out.println("shortest distinguishing string: '" + witness + "'");
+            System.out.println(args[0] + ": " + (a.accepts(witness) ? "accept" : "reject"));
+            System.out.println(args[1] + ": " + (b.accepts(witness) ? "accept" : "reject"));
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Function that finds a shortest string accepted by exactly one of the DFAs
+     *
+     * @return the string, or null if the DFAs are equivalent
+     */
+
+    public String distinguishingString(){
+        for (int i = 0; i < parent.length; i++){
+            parent[i] = i;
+            rank[i] = 0;
+        }
+        // pairs of nodes in breadth-first order, with the pair and symbol they were reached from
+        int[] left = new int[parent.length], right = new int[parent.length];
+        int[] from = new int[parent.length], via = new int[parent.length];
+        int pairs = 0;
+
+        int startA = a.getStart() == DfaTable.NONE ? sinkA : a.getStart();
+        int startB = b.getStart() == DfaTable.NONE ? sinkB : sinkA + 1 + b.getStart();
+        if (accepts(startA) != accepts(startB))
+            return "";
+        union(startA, startB);
+        left[pairs] = startA;
+        right[pairs] = startB;
+        from[pairs++] = -1;
+
+        for (int i = 0; i < pairs; i++){
+            for (int s = 0; s < symbols.length; s++){
+                int p = nextA(left[i], s);
+                int q = nextB(right[i], s);
+                if (find(p) == find(q))
+                    continue;
+                if (accepts(p) != accepts(q))
+                    return path(i, s, from, via);
+                union(p, q);
+                left[pairs] = p;
+                right[pairs] = q;
+                from[pairs] = i;
+                via[pairs++] = s;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Function that spells out the string leading to a pair followed by one more symbol
+     *
+     * @param pair index of the pair
+     * @param symbol symbol read from the pair
+     * @param from index of the pair each pair was reached from
+     * @param via symbol each pair was reached by
+     * @return the string
+     */
+
+    private String path(int pair, int symbol, int[] from, int[] via){
+        Deque<String> path = new ArrayDeque<>();
+        path.push(symbols[symbol]);
+        for (int i = pair; from[i] >= 0; i = from[i])
+            path.push(symbols[via[i]]);
+        return String.join("", path);
+    }
+
+    /**
+     * Function that returns the node a's node moves to on a symbol
+     *
+     * @param node a node of a
+     * @param symbol id of the symbol in the combined alphabet
+     * @return the next node of a
+     */
+
+    private int nextA(int node, int symbol){
+        if (node == sinkA || symbolA[symbol] < 0)
+            return sinkA;
+        int next = a.next(node, symbolA[symbol]);
+        return next == DfaTable.NONE ? sinkA : next;
+    }
+
+    /**
+     * Function that returns the node b's node moves to on a symbol
+     *
+     * @param node a node of b
+     * @param symbol id of the symbol in the combined alphabet
+     * @return the next node of b
+     */
+
+    private int nextB(int node, int symbol){
+        if (node == sinkB || symbolB[symbol] < 0)
+            return sinkB;
+        int next = b.next(node - sinkA - 1, symbolB[symbol]);
+        return next == DfaTable.NONE ? sinkB : sinkA + 1 + next;
+    }
+
+    /**
+     * Function that returns whether a node is an accept state
+     *
+     * @param node a node of either DFA
+     * @return true if the node is an accept state
+     */
+
+    private boolean accepts(int node){
+        if (node == sinkA || node == sinkB)
+            return false;
+        return node < sinkA ? a.isAccept(node) : b.isAccept(node - sinkA - 1);
+    }
+
+    /**
+     * Function that returns the representative of a node's class, halving the path to it
+     *
+     * @param node a node of either DFA
+     * @return the representative node
+     */
+
+    private int find(int node){
+        while (parent[node] != node){
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * Function that merges the classes of two nodes, by rank
+     *
+     * @param p a node of either DFA
+     * @param q a node of either DFA
+     */
+
+    private void union(int p, int q){
+        p = find(p);
+        q = find(q);
+        if (rank[p] < rank[q]){
+            parent[p] = q;
+        } else {
+            parent[q] = p;
+            if (rank[p] == rank[q])
+                rank[p]++;
+        }
+    }
+}
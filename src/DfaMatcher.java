@@ -0,0 +1,216 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Class representing a resumable match of a DFA against an input that arrives in chunks
+ *
+ * Only the current state is carried between chunks, so an unbounded stream is
+ * matched in constant memory without buffering or copying it. Once the match
+ * reaches a dead state the rest of the input is skipped, and once it reaches an
+ * absorbing state the rest of the input is only checked against the alphabet.
+ * result() may be checked after any chunk; finish() ends the match. A matcher
+ * is not thread-safe, but any number of matchers can share one DfaTable.
+ */
+
+public class DfaMatcher {
+
+    /*
+      DFA being matched
+     */
+    private final DfaTable table;
+
+    /*
+      Current state, DfaTable.NONE once the input has left the DFA
+     */
+    private int state;
+
+    /*
+      Whether the input has been rejected and no further input can change that
+     */
+    private boolean decided;
+
+    /*
+      Whether the match is in an absorbing state, so only out-of-alphabet input can change the result
+     */
+    private boolean absorbed;
+
+    /*
+      Number of symbols read since the last reset, not counting skipped input
+     */
+    private long position;
+
+    /*
+      Profiler counters for the thread that last reset the matcher, null when profiling is off
+     */
+    private DfaProfiler.Stripe stripe;
+
+    /*
+      Whether finish() has been called since the last reset
+     */
+    private boolean finished;
+
+    /**
+     * Constructor for the DfaMatcher class. The table is frozen if it is not already
+     *
+     * @param table DFA to match against
+     */
+
+    public DfaMatcher(DfaTable table){
+        table.freeze();
+        this.table = table;
+        reset();
+    }
+
+    /**
+     * Function that puts the matcher back in the start state so it can be reused
+     */
+
+    public void reset(){
+        state = table.getStart();
+        position = 0;
+        finished = false;
+        classify();
+        stripe = table.getProfiler() == null ? null : table.getProfiler().stripe();
+        if (stripe != null)
+            stripe.start(state);
+    }
+
+    /**
+     * Function that reads the remaining bytes of a buffer, one symbol per byte.
+     * The buffer's position is advanced to its limit
+     *
+     * @param buffer next chunk of input
+     */
+
+    public void feed(ByteBuffer buffer){
+        int i = buffer.position();
+        int end = buffer.limit();
+        if (buffer.hasArray()){
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            for (; i < end && !decided; i++)
+                step((char) (array[offset + i] & 0xff));
+        } else {
+            for (; i < end && !decided; i++)
+                step((char) (buffer.get(i) & 0xff));
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Function that reads a range of characters, one symbol per character
+     *
+     * @param input array holding the next chunk of input
+     * @param off index of the first character
+     * @param len number of characters
+     */
+
+    public void feed(char[] input, int off, int len){
+        if (off < 0 || len < 0 || off + len > input.length)
+            throw new IndexOutOfBoundsException("off " + off + ", len " + len + ", length " + input.length);
+        for (int i = off; i < off + len && !decided; i++)
+            step(input[i]);
+    }
+
+    /**
+     * Function that reads a string, one symbol per character
+     *
+     * @param input next chunk of input
+     */
+
+    public void feed(CharSequence input){
+        for (int i = 0; i < input.length() && !decided; i++)
+            step(input.charAt(i));
+    }
+
+    /**
+     * Function that returns whether the input read so far is accepted. It can be called
+     * after every chunk and does not count towards the profile
+     *
+     * @return true if the DFA accepts the input fed since the last reset
+     */
+
+    public boolean result(){
+        return table.isAccept(state);
+    }
+
+    /**
+     * Function that ends the match at the end of the input and returns its result. When
+     * the table is being profiled, the outcome is counted once per match, however many
+     * times this is called before the next reset
+     *
+     * @return true if the DFA accepts the input fed since the last reset
+     */
+
+    public boolean finish(){
+        boolean accepted = result();
+        if (stripe != null && !finished)
+            stripe.finish(accepted);
+        finished = true;
+        return accepted;
+    }
+
+    /**
+     * Function that returns whether the result is final, so no more input needs to be fed
+     *
+     * @return true if the input has left the DFA or the matcher is in a dead state
+     */
+
+    public boolean isDecided(){
+        return decided;
+    }
+
+    /**
+     * Function that returns the current state
+     *
+     * @return id of the current state, or DfaTable.NONE once the input has left the DFA
+     */
+
+    public int getState(){
+        return state;
+    }
+
+    /**
+     * Function that returns the number of symbols read since the last reset. Input fed
+     * after the result was decided is skipped and not counted, input checked against
+     * the alphabet in an absorbing state is counted
+     *
+     * @return number of symbols read
+     */
+
+    public long getPosition(){
+        return position;
+    }
+
+    /**
+     * Function that moves the matcher on by one symbol
+     *
+     * @param c symbol read
+     */
+
+    private void step(char c){
+        int symbol = table.symbolIndex(c);
+        position++;
+        if (absorbed){
+            if (symbol == DfaTable.NONE){
+                state = DfaTable.NONE;
+                absorbed = false;
+                decided = true;
+            }
+            return;
+        }
+        int next = symbol == DfaTable.NONE ? DfaTable.NONE : table.next(state, symbol);
+        if (stripe != null && next != DfaTable.NONE)
+            stripe.step(state, symbol);
+        state = next;
+        classify();
+    }
+
+    /**
+     * Function that works out whether the current state is dead or absorbing
+     */
+
+    private void classify(){
+        decided = state == DfaTable.NONE || table.isDead(state);
+        absorbed = !decided && table.isAbsorbing(state);
+    }
+}
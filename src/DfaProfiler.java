@@ -0,0 +1,269 @@
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * Class that counts how often a DFA's states and transitions are used while matching
+ *
+ * Counters are plain longs split into stripes, with each thread writing to the
+ * stripe picked by its id, so profiling costs an array increment per step and no
+ * synchronization. Two threads sharing a stripe can occasionally lose an
+ * increment, so counts under heavy contention are close but not exact.
+ *
+ * A stripe holds one counter per transition, 8 * states * symbols bytes, so a
+ * 10^6-state DFA over two symbols needs 16 MB per stripe. State visits are not
+ * stored but worked out from the transition counts when asked for. There are
+ * at most MAX_STRIPES stripes, fewer on machines with fewer processors, and a
+ * stripe is only allocated once a thread mapped to it starts matching, so a
+ * single-threaded matcher pays for one stripe.
+ */
+
+public class DfaProfiler {
+
+    /*
+      Counters written by the threads mapped to one stripe
+     */
+    static class Stripe {
+        final long[] hits;
+        final int symbols;
+        long starts, accepted, rejected;
+
+        Stripe(int states, int symbols){
+            this.symbols = symbols;
+            hits = new long[states * symbols];
+        }
+
+        /**
+         * Function that counts the start of a match
+         *
+         * @param state id of the start state
+         */
+
+        void start(int state){
+            if (state >= 0)
+                starts++;
+        }
+
+        /**
+         * Function that counts a transition taken while matching
+         *
+         * @param from id of the current state
+         * @param symbol id of the symbol read
+         */
+
+        void step(int from, int symbol){
+            hits[from * symbols + symbol]++;
+        }
+
+        /**
+         * Function that counts the outcome of a match
+         *
+         * @param accept whether the input was accepted
+         */
+
+        void finish(boolean accept){
+            if (accept)
+                accepted++;
+            else
+                rejected++;
+        }
+    }
+
+    /*
+      Largest number of counter stripes
+     */
+    public static final int MAX_STRIPES = 4;
+
+    /*
+      Table the counters are kept for
+     */
+    private final DfaTable table;
+
+    /*
+      Counter stripes, a power of two of them, null until first used
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * Constructor for the DfaProfiler class, with one stripe per processor up to
+     * MAX_STRIPES. The table must not gain states afterwards
+     *
+     * @param table table whose states and transitions are counted
+     */
+
+    public DfaProfiler(DfaTable table){
+        this(table, Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor for the DfaProfiler class. The table must not gain states afterwards
+     *
+     * @param table table whose states and transitions are counted
+     * @param concurrency expected number of threads matching at once, rounded down to a power of two
+     */
+
+    public DfaProfiler(DfaTable table, int concurrency){
+        this.table = table;
+        stripes = new Stripe[Integer.highestOneBit(Math.max(1, concurrency))];
+    }
+
+    /**
+     * Function that returns the stripe the current thread writes to
+     *
+     * @return the stripe
+     */
+
+    Stripe stripe(){
+        int i = (int) Thread.currentThread().getId() & (stripes.length - 1);
+        Stripe stripe = stripes[i];
+        return stripe != null ? stripe : allocate(i);
+    }
+
+    /**
+     * Function that allocates a stripe the first time a thread asks for it
+     *
+     * @param i index of the stripe
+     * @return the stripe
+     */
+
+    private synchronized Stripe allocate(int i){
+        if (stripes[i] == null)
+            stripes[i] = new Stripe(table.stateCount(), table.symbolCount());
+        return stripes[i];
+    }
+
+    /**
+     * Function that returns the stripes allocated so far
+     *
+     * @return the allocated stripes
+     */
+
+    private synchronized List<Stripe> allocated(){
+        List<Stripe> allocated = new ArrayList<>();
+        for (Stripe stripe : stripes)
+            if (stripe != null)
+                allocated.add(stripe);
+        return allocated;
+    }
+
+    /**
+     * Function that sets every counter back to zero
+     */
+
+    public void reset(){
+        for (Stripe stripe : allocated()){
+            Arrays.fill(stripe.hits, 0);
+            stripe.starts = 0;
+            stripe.accepted = 0;
+            stripe.rejected = 0;
+        }
+    }
+
+    /**
+     * Function that returns the number of times each state was entered, summed over all
+     * stripes. A state is entered once per match it starts and once per transition into it
+     *
+     * @return visit count of each state
+     */
+
+    public long[] stateVisits(){
+        long[] visits = new long[table.stateCount()];
+        long[] hits = transitionHits();
+        int symbols = table.symbolCount();
+        for (int q = 0; q < visits.length; q++)
+            for (int a = 0; a < symbols; a++){
+                int next = table.next(q, a);
+                if (next != DfaTable.NONE)
+                    visits[next] += hits[q * symbols + a];
+            }
+        if (table.getStart() != DfaTable.NONE)
+            for (Stripe stripe : allocated())
+                visits[table.getStart()] += stripe.starts;
+        return visits;
+    }
+
+    /**
+     * Function that returns the number of times each transition was taken, summed over all stripes
+     *
+     * @return hit count of each (state, symbol) pair, indexed by state * symbolCount + symbol
+     */
+
+    public long[] transitionHits(){
+        long[] hits = new long[table.stateCount() * table.symbolCount()];
+        for (Stripe stripe : allocated())
+            for (int i = 0; i < hits.length; i++)
+                hits[i] += stripe.hits[i];
+        return hits;
+    }
+
+    /**
+     * Function that prints the hottest states and transitions and the accept/reject ratio
+     *
+     * @param out stream to print to
+     * @param top number of states and transitions to list
+     */
+
+    public void report(PrintStream out, int top){
+        long accepted = 0, rejected = 0;
+        for (Stripe stripe : allocated()){
+            accepted += stripe.accepted;
+            rejected += stripe.rejected;
+        }
+        long matches = accepted + rejected;
+        out.printf("matches: %d, accepted: %d (%.1f%%), rejected: %d (%.1f%%)%n", matches, accepted,
+                percent(accepted, matches), rejected, percent(rejected, matches));
+
+        long[] visits = stateVisits();
+        long totalVisits = 0;
+        for (long v : visits)
+            totalVisits += v;
+        out.println("hottest states:");
+        for (int q : ranked(visits, top))
+            out.printf("  %-30s %12d %6.2f%%%n", table.stateName(q), visits[q], percent(visits[q], totalVisits));
+
+        long[] hits = transitionHits();
+        long totalHits = 0;
+        for (long h : hits)
+            totalHits += h;
+        out.println("hottest transitions:");
+        for (int i : ranked(hits, top)){
+            int q = i / table.symbolCount();
+            int a = i % table.symbolCount();
+            String transition = table.stateName(q) + ", " + table.symbol(a) + " -> " + table.stateName(table.next(q, a));
+            out.printf("  %-30s %12d %6.2f%%%n", transition, hits[i], percent(hits[i], totalHits));
+        }
+    }
+
+    /**
+     * Function that returns the indices of the largest non-zero counts, largest first
+     *
+     * @param counts the counts
+     * @param top largest number of indices to return
+     * @return the indices
+     */
+
+    private static List<Integer> ranked(long[] counts, int top){
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingLong(i -> counts[i]));
+        for (int i = 0; i < counts.length; i++){
+            if (counts[i] == 0)
+                continue;
+            heap.add(i);
+            if (heap.size() > top)
+                heap.poll();
+        }
+        List<Integer> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingLong((Integer i) -> counts[i]).reversed());
+        return result;
+    }
+
+    /**
+     * Function that returns a count as a percentage of a total
+     *
+     * @param count the count
+     * @param total the total
+     * @return the percentage, 0 if the total is 0
+     */
+
+    private static double percent(long count, long total){
+        return total == 0 ? 0 : 100.0 * count / total;
+    }
+}
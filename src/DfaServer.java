@@ -0,0 +1,273 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class representing a local matching service. Loads one or more DFAs once and
+ * answers match requests from many clients over a loopback socket, with every
+ * connection sharing the same read-only transition tables.
+ *
+ * Every request and response is a frame: an int giving the length of the rest
+ * of the frame, followed by the body. All numbers are big-endian and strings
+ * are an int byte count followed by UTF-8 bytes.
+ *
+ * Request body:  int id, byte op, int dfa, payload
+ *   MATCH  payload: string
+ *   BATCH  payload: int count, count strings
+ *   LIST   payload: none
+ *   PROFILE payload: none
+ * Response body: int id, byte status, long latency (ns), payload
+ *   MATCH  payload: byte (1 accept, 0 reject)
+ *   BATCH  payload: int count, count bytes (1 accept, 0 reject)
+ *   LIST   payload: int count, count strings (specification file names)
+ *   PROFILE payload: string (profile report of the DFA, empty unless started with -p)
+ *   ERROR  payload: string message
+ *
+ * Requests may be pipelined; responses on a connection come back in request order.
+ * Started with -p, the server profiles every DFA and prints the reports on shutdown.
+ */
+
+public class DfaServer {
+
+    /*
+      Request operations
+     */
+    public static final byte MATCH = 1;
+    public static final byte BATCH = 2;
+    public static final byte LIST = 3;
+    public static final byte PROFILE = 4;
+
+    /*
+      Response statuses
+     */
+    public static final byte OK = 0;
+    public static final byte ERROR = 1;
+
+    /*
+      Largest frame the server will accept
+     */
+    private static final int MAX_FRAME = 64 << 20;
+
+    /*
+      Names of the specification files the DFAs were loaded from
+     */
+    private final String[] names;
+
+    /*
+      Transition tables of the loaded DFAs, shared by every connection
+     */
+    private final DfaTable[] tables;
+
+    /**
+     * Constructor for the DfaServer class. Loads every specified DFA
+     *
+     * @param filenames names of files containing the specifications for the DFAs
+     */
+
+    public DfaServer(String[] filenames) throws IOException{
+        names = filenames.clone();
+        tables = new DfaTable[filenames.length];
+        for (int i = 0; i < filenames.length; i++){
+            tables[i] = new Dfa(filenames[i]).getTable();
+            if (tables[i] == null)
+                throw new IOException("could not load DFA specification " + filenames[i]);
+        }
+    }
+
+    /**
+     * Starts the server. Usage: java DfaServer [-p] port spec [spec ...]
+     *
+     * @param args optional -p, the port to listen on and the DFA specification file names
+     */
+
+    public static void main(String[] args){
+        boolean profile = args.length > 0 && args[0].equals("-p");
+        if (profile)
+            args = Arrays.copyOfRange(args, 1, args.length);
+        if (args.length < 2){
+            System.out.println("usage: java DfaServer [-p] port spec [spec ...]");
+            System.exit(1);
+        }
+        try{
+            DfaServer server = new DfaServer(Arrays.copyOfRange(args, 1, args.length));
+            if (profile)
+                server.enableProfiling();
+            server.serve(Integer.parseInt(args[0]));
+        } catch (IOException e){
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Function that turns on profiling for every DFA and prints the reports when the JVM shuts down
+     */
+
+    public void enableProfiling(){
+        for (DfaTable table : tables)
+            table.setProfiler(new DfaProfiler(table));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (int i = 0; i < tables.length; i++){
+                System.out.println("Profile of " + names[i] + ":");
+                tables[i].getProfiler().report(System.out, 20);
+            }
+        }));
+    }
+
+    /**
+     * Function that accepts connections on the loopback interface until the process exits
+     *
+     * @param port port to listen on
+     */
+
+    public void serve(int port) throws IOException{
+        ExecutorService executor = connectionExecutor();
+        try (ServerSocket serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())){
+            System.out.println("Listening on " + serverSocket.getLocalSocketAddress() + " with " + tables.length + " DFA(s)");
+            while (true){
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Function that returns an executor running one virtual thread per connection,
+     * or one platform thread per connection on JVMs without virtual threads
+     *
+     * @return executor for connection handlers
+     */
+
+    private static ExecutorService connectionExecutor(){
+        try{
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e){
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Function that serves the requests on one connection until the client closes it
+     *
+     * @param socket connection to the client
+     */
+
+    private void handle(Socket socket){
+        try (Socket s = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()))){
+            while (true){
+                int length;
+                try{
+                    length = in.readInt();
+                } catch (EOFException e){
+                    break;
+                }
+                if (length < 9 || length > MAX_FRAME)
+                    break;
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                long start = System.nanoTime();
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                DataInputStream request = new DataInputStream(new ByteArrayInputStream(frame));
+                int id = request.readInt();
+                byte status = OK;
+                try{
+                    respond(request, new DataOutputStream(body));
+                } catch (IOException | RuntimeException e){
+                    status = ERROR;
+                    body.reset();
+                    writeString(new DataOutputStream(body), String.valueOf(e.getMessage()));
+                }
+                long latency = System.nanoTime() - start;
+                out.writeInt(13 + body.size());
+                out.writeInt(id);
+                out.writeByte(status);
+                out.writeLong(latency);
+                body.writeTo(out);
+                // only flush once the client has no more pipelined requests waiting
+                if (in.available() == 0)
+                    out.flush();
+            }
+            out.flush();
+        } catch (IOException e){
+            // the client went away, nothing left to answer
+        }
+    }
+
+    /**
+     * Function that runs a single request and writes its response payload
+     *
+     * @param request request body following the id
+     * @param response stream the response payload is written to
+     */
+
+    private void respond(DataInputStream request, DataOutputStream response) throws IOException{
+        byte op = request.readByte();
+        int dfa = request.readInt();
+        if (op == LIST){
+            response.writeInt(names.length);
+            for (String name : names)
+                writeString(response, name);
+            return;
+        }
+        if (dfa < 0 || dfa >= tables.length)
+            throw new IOException("no DFA with index " + dfa);
+        DfaTable table = tables[dfa];
+        if (op == PROFILE){
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            if (table.getProfiler() != null)
+                table.getProfiler().report(new PrintStream(report, true, "UTF-8"), 20);
+            writeString(response, report.toString("UTF-8"));
+        } else if (op == MATCH){
+            response.writeByte(table.accepts(readString(request)) ? 1 : 0);
+        } else if (op == BATCH){
+            int count = request.readInt();
+            // every string takes at least its 4-byte length, so the frame bounds the count
+            if (count < 0 || count > request.available() / 4)
+                throw new IOException("bad batch count " + count);
+            response.writeInt(count);
+            for (int i = 0; i < count; i++)
+                response.writeByte(table.accepts(readString(request)) ? 1 : 0);
+        } else {
+            throw new IOException("unknown operation " + op);
+        }
+    }
+
+    /**
+     * Function that reads a length-prefixed UTF-8 string
+     *
+     * @param in stream to read from
+     * @return the string read
+     */
+
+    private static String readString(DataInputStream in) throws IOException{
+        int length = in.readInt();
+        if (length < 0 || length > in.available())
+            throw new IOException("bad string length " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Function that writes a length-prefixed UTF-8 string
+     *
+     * @param out stream to write to
+     * @param s string to write
+     */
+
+    private static void writeString(DataOutputStream out, String s) throws IOException{
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,645 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+/**
+ * Class representing the transition table of a DFA, stored off-heap
+ *
+ * States and symbols are numbered from 0 and the table holds one int per
+ * (state, symbol) pair in pages of direct ByteBuffers, so a large DFA costs
+ * a handful of heap objects per state rather than several per transition.
+ *
+ * A table is filled in and then frozen. freeze() finds the dead and absorbing
+ * states once and makes the table read-only, after which it can be shared by
+ * any number of threads. Dfa, NfaToDfa, StrideTable and DfaMatcher freeze the
+ * tables they use.
+ */
+
+public class DfaTable {
+
+    /*
+      Value returned by next() when a state has no transition on a symbol
+     */
+    public static final int NONE = -1;
+
+    /*
+      Number of table entries held by a full page (256 KB per page)
+     */
+    private static final int PAGE_SHIFT = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    /*
+      Off-heap pages holding the transition function, entries are stored as
+      target + 1 so that a freshly allocated (zeroed) page means NONE
+     */
+    private ByteBuffer[] pages = new ByteBuffer[0];
+
+    /*
+      Names of the states, indexed by state id
+     */
+    private String[] names = new String[16];
+
+    /*
+      Map from state name to state id
+     */
+    private Map<String, Integer> ids = new HashMap<>();
+
+    /*
+      Symbols of the alphabet, indexed by symbol id
+     */
+    private final String[] symbols;
+
+    /*
+      Map from input character to symbol id, -1 for characters not in the alphabet
+     */
+    private final int[] charIndex;
+
+    /*
+      Set of all accept states
+     */
+    private BitSet accept = new BitSet();
+
+    /*
+      Early-exit flag of each state, null until freeze() is called. DEAD marks states from
+      which no accept state can be reached, ABSORBING marks accept states from which every
+      input leads to an accept state
+     */
+    private byte[] exits;
+
+    /*
+      Early-exit flags
+     */
+    private static final byte DEAD = 1;
+    private static final byte ABSORBING = 2;
+
+    /*
+      Whether the table has been frozen and can no longer change
+     */
+    private boolean frozen = false;
+
+    /*
+      Profiler counting the states and transitions used by accepts(), null when profiling is off
+     */
+    private DfaProfiler profiler;
+
+    /*
+      Number of states in the table
+     */
+    private int size = 0;
+
+    /*
+      Id of the start state
+     */
+    private int start = NONE;
+
+    /**
+     * Constructor for the DfaTable class
+     *
+     * @param alphabet symbols readable by the DFA
+     */
+
+    public DfaTable(Collection<String> alphabet){
+        symbols = alphabet.toArray(new String[0]);
+        int max = 0;
+        for (String symbol : symbols)
+            if (symbol.length() == 1)
+                max = Math.max(max, symbol.charAt(0));
+        charIndex = new int[max + 1];
+        Arrays.fill(charIndex, -1);
+        for (int i = 0; i < symbols.length; i++)
+            if (symbols[i].length() == 1)
+                charIndex[symbols[i].charAt(0)] = i;
+    }
+
+    /**
+     * Function that adds a state to the table, or returns its id if it already exists
+     *
+     * @param name name of the state
+     * @return id of the state
+     */
+
+    public int addState(String name){
+        checkMutable();
+        Integer id = ids.get(name);
+        if (id != null)
+            return id;
+        if (size == names.length)
+            names = Arrays.copyOf(names, size * 2);
+        names[size] = name;
+        ids.put(name, size);
+        ensurePages((long) (size + 1) * symbols.length);
+        return size++;
+    }
+
+    /**
+     * Function that returns the id of a state
+     *
+     * @param name name of the state
+     * @return id of the state, or NONE if there is no such state
+     */
+
+    public int stateId(String name){
+        Integer id = ids.get(name);
+        return id == null ? NONE : id;
+    }
+
+    /**
+     * Function that returns the name of a state
+     *
+     * @param state id of the state
+     * @return name of the state
+     */
+
+    public String stateName(int state){
+        return names[state];
+    }
+
+    /**
+     * Function that returns the id of the symbol for an input character
+     *
+     * @param c input character
+     * @return id of the symbol, or NONE if c is not in the alphabet
+     */
+
+    public int symbolIndex(char c){
+        return c < charIndex.length ? charIndex[c] : NONE;
+    }
+
+    /**
+     * Function that returns the id of a symbol
+     *
+     * @param symbol symbol of the alphabet
+     * @return id of the symbol, or NONE if it is not in the alphabet
+     */
+
+    public int symbolIndex(String symbol){
+        if (symbol.length() == 1)
+            return symbolIndex(symbol.charAt(0));
+        for (int i = 0; i < symbols.length; i++)
+            if (symbols[i].equals(symbol))
+                return i;
+        return NONE;
+    }
+
+    /**
+     * Function that returns a symbol of the alphabet
+     *
+     * @param symbol id of the symbol
+     * @return the symbol
+     */
+
+    public String symbol(int symbol){
+        return symbols[symbol];
+    }
+
+    /**
+     * Function that stores a transition in the table
+     *
+     * @param from id of the current state
+     * @param symbol id of the symbol read
+     * @param to id of the next state, or NONE to remove the transition
+     */
+
+    public void setTransition(int from, int symbol, int to){
+        checkMutable();
+        long index = (long) from * symbols.length + symbol;
+        pages[(int) (index >>> PAGE_SHIFT)].putInt(((int) index & PAGE_MASK) << 2, to + 1);
+    }
+
+    /**
+     * Function that takes a state and a symbol and returns the next state
+     *
+     * @param from id of the current state
+     * @param symbol id of the symbol read
+     * @return id of the next state, or NONE if there is no transition
+     */
+
+    public int next(int from, int symbol){
+        long index = (long) from * symbols.length + symbol;
+        return pages[(int) (index >>> PAGE_SHIFT)].getInt(((int) index & PAGE_MASK) << 2) - 1;
+    }
+
+    /**
+     * Function that marks a state as accepting or not
+     *
+     * @param state id of the state
+     * @param accepting whether the state is an accept state
+     */
+
+    public void setAccept(int state, boolean accepting){
+        checkMutable();
+        accept.set(state, accepting);
+    }
+
+    /**
+     * Function that returns whether a state is an accept state
+     *
+     * @param state id of the state
+     * @return true if the state is an accept state
+     */
+
+    public boolean isAccept(int state){
+        return state >= 0 && accept.get(state);
+    }
+
+    /**
+     * Function that returns the start state
+     *
+     * @return id of the start state, or NONE if it has not been set
+     */
+
+    public int getStart(){
+        return start;
+    }
+
+    /**
+     * Function that sets the start state
+     *
+     * @param start id of the start state
+     */
+
+    public void setStart(int start){
+        checkMutable();
+        this.start = start;
+    }
+
+    /**
+     * Function that returns the number of states in the table
+     *
+     * @return number of states
+     */
+
+    public int stateCount(){
+        return size;
+    }
+
+    /**
+     * Function that returns the number of symbols in the alphabet
+     *
+     * @return number of symbols
+     */
+
+    public int symbolCount(){
+        return symbols.length;
+    }
+
+    /**
+     * Function that runs the DFA on an input string
+     *
+     * @param input string to be matched
+     * @return true if the DFA accepts the input
+     */
+
+    public boolean accepts(CharSequence input){
+        return accepts(input, null);
+    }
+
+    /**
+     * Function that runs the DFA on an input string, recording every transition taken.
+     * Without a trace and once the table is frozen, a match stops at a dead state, and
+     * at an absorbing state only checks that the rest of the input is in the alphabet.
+     * A trace records every step
+     *
+     * @param input string to be matched
+     * @param trace buffer the transitions are recorded in, or null for no tracing
+     * @return true if the DFA accepts the input
+     */
+
+    public boolean accepts(CharSequence input, TraceBuffer trace){
+        int state = start;
+        byte[] exits = trace == null ? this.exits : null;
+        DfaProfiler.Stripe stripe = profiler == null ? null : profiler.stripe();
+        if (stripe != null)
+            stripe.start(state);
+        for (int i = 0; i < input.length() && state != NONE; i++){
+            if (exits != null && exits[state] != 0){
+                if (exits[state] == ABSORBING && !inAlphabet(input, i))
+                    state = NONE;
+                break;
+            }
+            int symbol = symbolIndex(input.charAt(i));
+            int next = symbol == NONE ? NONE : next(state, symbol);
+            if (trace != null && next != NONE)
+                trace.record(i, state, symbol, next);
+            if (stripe != null && next != NONE)
+                stripe.step(state, symbol);
+            state = next;
+        }
+        boolean accepted = isAccept(state);
+        if (stripe != null)
+            stripe.finish(accepted);
+        return accepted;
+    }
+
+    /**
+     * Function that turns profiling of matches on or off
+     *
+     * @param profiler profiler built for this table, or null to turn profiling off
+     */
+
+    public void setProfiler(DfaProfiler profiler){
+        this.profiler = profiler;
+    }
+
+    /**
+     * Function that returns the profiler counting matches against this table
+     *
+     * @return the profiler, or null when profiling is off
+     */
+
+    public DfaProfiler getProfiler(){
+        return profiler;
+    }
+
+    /**
+     * Function that finds the dead and absorbing states, letting matches stop as soon
+     * as their outcome is known, and makes the table read-only. Freezing a frozen
+     * table does nothing. Call it before sharing the table between threads
+     */
+
+    public synchronized void freeze(){
+        if (frozen)
+            return;
+        classifyStates();
+        frozen = true;
+    }
+
+    /**
+     * Function that returns whether the table has been frozen
+     *
+     * @return true if the table is read-only
+     */
+
+    public boolean isFrozen(){
+        return frozen;
+    }
+
+    /**
+     * Function that throws if the table has been frozen
+     */
+
+    private void checkMutable(){
+        if (frozen)
+            throw new IllegalStateException("DFA table is frozen");
+    }
+
+    /**
+     * Function that finds the dead and absorbing states
+     */
+
+    private void classifyStates(){
+        int[] offsets = new int[size + 1];
+        for (int q = 0; q < size; q++)
+            for (int a = 0; a < symbols.length; a++){
+                int next = next(q, a);
+                if (next != NONE)
+                    offsets[next + 1]++;
+            }
+        for (int q = 0; q < size; q++)
+            offsets[q + 1] += offsets[q];
+        int[] fill = Arrays.copyOf(offsets, size);
+        int[] predecessors = new int[offsets[size]];
+        for (int q = 0; q < size; q++)
+            for (int a = 0; a < symbols.length; a++){
+                int next = next(q, a);
+                if (next != NONE)
+                    predecessors[fill[next]++] = q;
+            }
+
+        BitSet live = new BitSet(size);
+        BitSet failing = new BitSet(size);
+        for (int q = 0; q < size; q++){
+            if (accept.get(q))
+                live.set(q);
+            else
+                failing.set(q);
+            for (int a = 0; a < symbols.length && !failing.get(q); a++)
+                if (next(q, a) == NONE)
+                    failing.set(q);
+        }
+        backwardClosure(live, offsets, predecessors);
+        backwardClosure(failing, offsets, predecessors);
+
+        exits = new byte[size];
+        for (int q = 0; q < size; q++){
+            if (!live.get(q))
+                exits[q] = DEAD;
+            else if (!failing.get(q))
+                exits[q] = ABSORBING;
+        }
+    }
+
+    /**
+     * Function that returns whether every character from a position on is in the alphabet
+     *
+     * @param input string being matched
+     * @param from index of the first character to check
+     * @return true if no character from the position on is outside the alphabet
+     */
+
+    private boolean inAlphabet(CharSequence input, int from){
+        for (int i = from; i < input.length(); i++)
+            if (symbolIndex(input.charAt(i)) == NONE)
+                return false;
+        return true;
+    }
+
+    /**
+     * Function that adds every state that can reach a state in the set
+     *
+     * @param set set of states, updated in place
+     * @param offsets per-state offsets into predecessors
+     * @param predecessors predecessor states, packed by target state
+     */
+
+    private void backwardClosure(BitSet set, int[] offsets, int[] predecessors){
+        int[] stack = new int[size];
+        int top = 0;
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1))
+            stack[top++] = q;
+        while (top > 0){
+            int q = stack[--top];
+            for (int i = offsets[q]; i < offsets[q + 1]; i++){
+                int p = predecessors[i];
+                if (!set.get(p)){
+                    set.set(p);
+                    stack[top++] = p;
+                }
+            }
+        }
+    }
+
+    /**
+     * Function that returns whether no accept state can be reached from a state.
+     * The table must be frozen
+     *
+     * @param state id of the state
+     * @return true if the state is dead
+     */
+
+    public boolean isDead(int state){
+        if (!frozen)
+            throw new IllegalStateException("DFA table is not frozen");
+        return exits[state] == DEAD;
+    }
+
+    /**
+     * Function that returns whether a state accepts every input from here on.
+     * The table must be frozen
+     *
+     * @param state id of the state
+     * @return true if the state is an absorbing accept state
+     */
+
+    public boolean isAbsorbing(int state){
+        if (!frozen)
+            throw new IllegalStateException("DFA table is not frozen");
+        return exits[state] == ABSORBING;
+    }
+
+    /**
+     * Function that returns a copy of the table without its dead states. Transitions
+     * into dead states are removed, the start state is kept even if it is dead. Both
+     * this table and the trimmed one are frozen
+     *
+     * @return the trimmed table
+     */
+
+    public DfaTable trim(){
+        freeze();
+        DfaTable trimmed = new DfaTable(Arrays.asList(symbols));
+        int[] map = new int[size];
+        Arrays.fill(map, NONE);
+        for (int q = 0; q < size; q++){
+            if (exits[q] != DEAD || q == start){
+                map[q] = trimmed.addState(names[q]);
+                trimmed.setAccept(map[q], accept.get(q));
+            }
+        }
+        for (int q = 0; q < size; q++){
+            if (map[q] == NONE)
+                continue;
+            for (int a = 0; a < symbols.length; a++){
+                int next = next(q, a);
+                if (next != NONE && exits[next] != DEAD)
+                    trimmed.setTransition(map[q], a, map[next]);
+            }
+        }
+        if (start != NONE)
+            trimmed.setStart(map[start]);
+        trimmed.freeze();
+        return trimmed;
+    }
+
+    /**
+     * Function that returns an equivalent table with the fewest states, found by refining
+     * the partition of states into accept and non-accept states until every block agrees
+     * on which block each symbol leads to. A missing transition counts as its own block.
+     * Each state of the result takes the name of the lowest-numbered state it replaces.
+     * The result is frozen
+     *
+     * @return the minimized table
+     */
+
+    public DfaTable minimize(){
+        int[] block = new int[size];
+        int blocks = 0;
+        for (int pass = 0; ; pass++){
+            Map<Signature, Integer> numbering = new HashMap<>();
+            int[] refined = new int[size];
+            for (int q = 0; q < size; q++){
+                int[] key = new int[symbols.length + 1];
+                key[0] = pass == 0 ? (accept.get(q) ? 1 : 0) : block[q];
+                for (int a = 0; a < symbols.length && pass > 0; a++){
+                    int next = next(q, a);
+                    key[a + 1] = next == NONE ? NONE : block[next];
+                }
+                Integer id = numbering.putIfAbsent(new Signature(key), numbering.size());
+                refined[q] = id == null ? numbering.size() - 1 : id;
+            }
+            block = refined;
+            if (pass > 0 && numbering.size() == blocks)
+                break;
+            blocks = numbering.size();
+        }
+
+        DfaTable minimized = new DfaTable(Arrays.asList(symbols));
+        int[] representative = new int[blocks];
+        Arrays.fill(representative, NONE);
+        for (int q = 0; q < size; q++){
+            if (representative[block[q]] == NONE){
+                representative[block[q]] = q;
+                minimized.addState(names[q]);
+            }
+        }
+        for (int b = 0; b < blocks; b++){
+            int q = representative[b];
+            int id = minimized.stateId(names[q]);
+            minimized.setAccept(id, accept.get(q));
+            for (int a = 0; a < symbols.length; a++){
+                int next = next(q, a);
+                if (next != NONE)
+                    minimized.setTransition(id, a, minimized.stateId(names[representative[block[next]]]));
+            }
+        }
+        if (start != NONE)
+            minimized.setStart(minimized.stateId(names[representative[block[start]]]));
+        minimized.freeze();
+        return minimized;
+    }
+
+    /*
+      Hashable wrapper for the int[] signature of a state during minimization
+     */
+    private static class Signature {
+        private final int[] key;
+        private final int hash;
+
+        Signature(int[] key){
+            this.key = key;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o){
+            return o instanceof Signature && Arrays.equals(key, ((Signature) o).key);
+        }
+
+        @Override
+        public int hashCode(){
+            return hash;
+        }
+    }
+
+    /**
+     * Function that allocates pages until the table can hold the given number of entries.
+     * The first page starts small and doubles up to a full page, so a small table does
+     * not hold a whole page of direct memory; further pages are always full size
+     *
+     * @param entries number of entries the table must hold
+     */
+
+    private void ensurePages(long entries){
+        int capacity = pages.length == 0 ? 0 : pages[0].capacity() >>> 2;
+        if (pages.length <= 1 && entries <= capacity)
+            return;
+        if (capacity < PAGE_SIZE){
+            int grown = Math.max(capacity, 64);
+            while (grown < entries && grown < PAGE_SIZE)
+                grown <<= 1;
+            ByteBuffer first = ByteBuffer.allocateDirect(grown << 2).order(ByteOrder.nativeOrder());
+            if (capacity > 0)
+                first.put(pages[0].duplicate().clear());
+            first.clear();
+            pages = new ByteBuffer[]{first};
+        }
+        int needed = (int) ((entries + PAGE_MASK) >>> PAGE_SHIFT);
+        if (needed <= pages.length)
+            return;
+        int old = pages.length;
+        pages = Arrays.copyOf(pages, needed);
+        for (int i = old; i < needed; i++)
+            pages[i] = ByteBuffer.allocateDirect(PAGE_SIZE << 2).order(ByteOrder.nativeOrder());
+    }
+}
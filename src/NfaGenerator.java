@@ -0,0 +1,243 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Class that generates NFA specifications with known conversion behavior
+ *
+ * Families:
+ *   nth-from-end n                       strings over {0, 1} whose n-th symbol from the end
+ *                                        is 1; n + 1 NFA states, 2^n DFA states
+ *   random n density epsilon seed        n states over {0, 1}, each labelled edge present with
+ *                                        probability density, each epsilon edge with probability
+ *                                        density * epsilon
+ *   epsilon-chain n                      n states joined by a chain of epsilon edges
+ *   epsilon-cycle n                      n states joined by a cycle of epsilon edges
+ *
+ * Usage: java NfaGenerator family n [density epsilon seed] [outputFile]
+ */
+
+public class NfaGenerator {
+
+    /**
+     * Writes a generated NFA specification to a file, or to the console
+     *
+     * @param args family, size, the parameters of the random family and an optional output file
+     */
+
+    public static void main(String[] args){
+        if (args.length < 2){
+            System.out.println("usage: java NfaGenerator family n [density epsilon seed] [outputFile]");
+            System.exit(1);
+        }
+        int n = Integer.parseInt(args[1]);
+        int next = 2;
+        String spec;
+        if (args[0].equals("random")){
+            if (args.length < 5){
+                System.out.println("usage: java NfaGenerator random n density epsilon seed [outputFile]");
+                System.exit(1);
+            }
+            spec = random(n, Double.parseDouble(args[2]), Double.parseDouble(args[3]), Long.parseLong(args[4]));
+            next = 5;
+        } else {
+            spec = generate(args[0], n);
+        }
+        if (args.length > next){
+            try (FileWriter fr = new FileWriter(args[next])){
+                fr.write(spec);
+            } catch (IOException e){
+                e.printStackTrace();
+            }
+        } else {
+            System.out.println(spec);
+        }
+    }
+
+    /**
+     * Function that generates a member of one of the families without parameters
+     *
+     * @param family nth-from-end, epsilon-chain or epsilon-cycle
+     * @param n size of the NFA
+     * @return the NFA specification
+     */
+
+    public static String generate(String family, int n){
+        switch (family){
+            case "nth-from-end":
+                return nthFromEnd(n);
+            case "epsilon-chain":
+                return epsilonChain(n);
+            case "epsilon-cycle":
+                return epsilonCycle(n);
+            default:
+                throw new IllegalArgumentException("unknown NFA family " + family);
+        }
+    }
+
+    /**
+     * Function that generates the NFA for strings whose n-th symbol from the end is 1.
+     * Its smallest equivalent DFA has 2^n states
+     *
+     * @param n position of the 1 from the end
+     * @return the NFA specification
+     */
+
+    public static String nthFromEnd(int n){
+        Map<String, List<String>> delta = new LinkedHashMap<>();
+        add(delta, "q0", "0", "q0");
+        add(delta, "q0", "1", "q0");
+        add(delta, "q0", "1", "q1");
+        for (int i = 1; i < n; i++){
+            add(delta, "q" + i, "0", "q" + (i + 1));
+            add(delta, "q" + i, "1", "q" + (i + 1));
+        }
+        return spec("nth-from-end " + n, "strings whose symbol " + n + " from the end is 1",
+                states(n + 1), "q0", Collections.singletonList("q" + n), delta);
+    }
+
+    /**
+     * Function that generates a random NFA over {0, 1}
+     *
+     * @param n number of states
+     * @param density probability of each labelled edge
+     * @param epsilon probability of each epsilon edge, relative to density
+     * @param seed seed for the random number generator
+     * @return the NFA specification
+     */
+
+    public static String random(int n, double density, double epsilon, long seed){
+        Random random = new Random(seed);
+        Map<String, List<String>> delta = new LinkedHashMap<>();
+        for (int p = 0; p < n; p++){
+            for (String symbol : new String[]{"0", "1", "."}){
+                double probability = symbol.equals(".") ? density * epsilon : density;
+                for (int q = 0; q < n; q++)
+                    if (random.nextDouble() < probability && !(symbol.equals(".") && p == q))
+                        add(delta, "q" + p, symbol, "q" + q);
+            }
+        }
+        List<String> accept = new ArrayList<>();
+        for (int q = 0; q < n; q++)
+            if (random.nextInt(4) == 0)
+                accept.add("q" + q);
+        if (accept.isEmpty())
+            accept.add("q" + (n - 1));
+        return spec("random " + n + " " + density + " " + epsilon + " " + seed,
+                "random NFA with edge density " + density + " and epsilon ratio " + epsilon,
+                states(n), "q0", accept, delta);
+    }
+
+    /**
+     * Function that generates an NFA whose states form a chain of epsilon edges.
+     * Reading 0 stays put and reading 1 moves one state along the chain
+     *
+     * @param n number of states
+     * @return the NFA specification
+     */
+
+    public static String epsilonChain(int n){
+        Map<String, List<String>> delta = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++){
+            add(delta, "q" + i, "0", "q" + i);
+            if (i + 1 < n){
+                add(delta, "q" + i, "1", "q" + (i + 1));
+                add(delta, "q" + i, ".", "q" + (i + 1));
+            }
+        }
+        return spec("epsilon-chain " + n, "chain of " + n + " states joined by epsilon edges",
+                states(n), "q0", Collections.singletonList("q" + (n - 1)), delta);
+    }
+
+    /**
+     * Function that generates an NFA whose states form a cycle of epsilon edges
+     *
+     * @param n number of states
+     * @return the NFA specification
+     */
+
+    public static String epsilonCycle(int n){
+        Map<String, List<String>> delta = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++){
+            add(delta, "q" + i, ".", "q" + ((i + 1) % n));
+            add(delta, "q" + i, "0", "q" + ((i + 2) % n));
+        }
+        return spec("epsilon-cycle " + n, "cycle of " + n + " states joined by epsilon edges",
+                states(n), "q0", Collections.singletonList("q" + (n - 1)), delta);
+    }
+
+    /**
+     * Function that counts the transitions in a generated NFA specification
+     *
+     * @param spec the NFA specification
+     * @return number of (state, symbol, target) triples
+     */
+
+    public static int transitionCount(String spec){
+        int count = 0, line = 0;
+        for (String s : spec.split("\n")){
+            if (s.isEmpty() || s.charAt(0) == '#')
+                continue;
+            if (++line > 4)
+                count += s.split("\\s+").length - 2;
+        }
+        return count;
+    }
+
+    /**
+     * Function that adds a transition, grouping the targets of each state and symbol
+     *
+     * @param delta map from "state symbol" to the list of next states
+     * @param from current state
+     * @param symbol symbol read, '.' for epsilon
+     * @param to next state
+     */
+
+    private static void add(Map<String, List<String>> delta, String from, String symbol, String to){
+        delta.computeIfAbsent(from + " " + symbol, k -> new ArrayList<>()).add(to);
+    }
+
+    /**
+     * Function that names the states q0 to q(n - 1)
+     *
+     * @param n number of states
+     * @return the state names
+     */
+
+    private static List<String> states(int n){
+        List<String> states = new ArrayList<>();
+        for (int i = 0; i < n; i++)
+            states.add("q" + i);
+        return states;
+    }
+
+    /**
+     * Function that formats an NFA in the specification file format
+     *
+     * @param name name of the NFA
+     * @param description what the NFA recognizes
+     * @param Q set of states
+     * @param s start state
+     * @param F set of accept states
+     * @param delta map from "state symbol" to the list of next states
+     * @return the NFA specification
+     */
+
+    private static String spec(String name, String description, List<String> Q, String s, List<String> F,
+                               Map<String, List<String>> delta){
+        StringBuilder output = new StringBuilder("# File: " + name);
+        output.append("\n# ").append(description);
+        output.append("\n# Q - the set of states");
+        output.append("\n").append(String.join(" ", Q));
+        output.append("\n# Sigma - the alphabet");
+        output.append("\n0 1");
+        output.append("\n# q_0 - the start state");
+        output.append("\n").append(s);
+        output.append("\n# F - the set of accept states");
+        output.append("\n").append(F.isEmpty() ? "@" : String.join(" ", F));
+        output.append("\n# delta - the transition function");
+        for (Map.Entry<String, List<String>> entry : delta.entrySet())
+            output.append("\n").append(entry.getKey()).append(" ").append(String.join(" ", entry.getValue()));
+        return output.toString();
+    }
+}
@@ -0,0 +1,243 @@
+import java.util.*;
+
+/**
+ * Class representing the transition function of an NFA in compressed sparse row form
+ *
+ * States are numbered in sorted order of their names, so a set of state ids
+ * iterated in ascending order gives the names in the same order NfaToDfa
+ * joins them. The labelled edges of state q are the entries offsets[q] up to
+ * offsets[q + 1] of edgeSymbols and edgeTargets, sorted by symbol; the
+ * epsilon edges are kept in a separate segment in the same layout.
+ */
+
+public class NfaTable {
+
+    /*
+      Names of the states, indexed by state id
+     */
+    private final String[] names;
+
+    /*
+      Map from state name to state id
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    /*
+      Symbols of the alphabet (epsilon excluded), indexed by symbol id
+     */
+    private final String[] symbols;
+
+    /*
+      Per-state offsets into edgeSymbols and edgeTargets
+     */
+    private final int[] offsets;
+
+    /*
+      Symbol ids of the labelled edges, packed by state and sorted by symbol
+     */
+    private final int[] edgeSymbols;
+
+    /*
+      Target states of the labelled edges
+     */
+    private final int[] edgeTargets;
+
+    /*
+      Per-state offsets into epsilonTargets
+     */
+    private final int[] epsilonOffsets;
+
+    /*
+      Target states of the epsilon edges, packed by state
+     */
+    private final int[] epsilonTargets;
+
+    /**
+     * Constructor for the NfaTable class. Packs a parsed transition function
+     *
+     * @param Q set of states in the NFA
+     * @param Sigma alphabet of the NFA, may contain the epsilon symbol '.' or be null
+     * @param delta map from "state,symbol" to the list of next states
+     */
+
+    public NfaTable(Set<String> Q, Set<String> Sigma, Map<String, List<String>> delta){
+        Set<String> states = new TreeSet<>(Q);
+        Set<String> alphabet = new TreeSet<>();
+        if (Sigma != null)
+            alphabet.addAll(Sigma);
+        alphabet.remove(".");
+        for (Map.Entry<String, List<String>> entry : delta.entrySet()){
+            String key = entry.getKey();
+            states.add(key.substring(0, key.lastIndexOf(',')));
+            states.addAll(entry.getValue());
+        }
+        names = states.toArray(new String[0]);
+        for (int i = 0; i < names.length; i++)
+            ids.put(names[i], i);
+        symbols = alphabet.toArray(new String[0]);
+        Map<String, Integer> symbolIds = new HashMap<>();
+        for (int i = 0; i < symbols.length; i++)
+            symbolIds.put(symbols[i], i);
+
+        List<int[]> edges = new ArrayList<>();
+        List<int[]> epsilon = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : delta.entrySet()){
+            String key = entry.getKey();
+            int from = ids.get(key.substring(0, key.lastIndexOf(',')));
+            String symbol = key.substring(key.lastIndexOf(',') + 1);
+            for (String target : entry.getValue()){
+                if (symbol.equals("."))
+                    epsilon.add(new int[]{from, 0, ids.get(target)});
+                else if (symbolIds.containsKey(symbol))
+                    edges.add(new int[]{from, symbolIds.get(symbol), ids.get(target)});
+            }
+        }
+        Comparator<int[]> order = (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]);
+        edges.sort(order);
+        epsilon.sort(order);
+
+        offsets = new int[names.length + 1];
+        edgeSymbols = new int[edges.size()];
+        edgeTargets = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++){
+            int[] edge = edges.get(i);
+            offsets[edge[0] + 1]++;
+            edgeSymbols[i] = edge[1];
+            edgeTargets[i] = edge[2];
+        }
+        epsilonOffsets = new int[names.length + 1];
+        epsilonTargets = new int[epsilon.size()];
+        for (int i = 0; i < epsilon.size(); i++){
+            int[] edge = epsilon.get(i);
+            epsilonOffsets[edge[0] + 1]++;
+            epsilonTargets[i] = edge[2];
+        }
+        for (int q = 0; q < names.length; q++){
+            offsets[q + 1] += offsets[q];
+            epsilonOffsets[q + 1] += epsilonOffsets[q];
+        }
+    }
+
+    /**
+     * Function that adds every state reachable by epsilon transitions to a set of states
+     *
+     * @param set set of state ids, updated in place
+     * @return the same set, closed under epsilon transitions
+     */
+
+    public BitSet closure(BitSet set){
+        int[] stack = new int[names.length];
+        int top = 0;
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1))
+            stack[top++] = q;
+        while (top > 0){
+            int q = stack[--top];
+            for (int i = epsilonOffsets[q]; i < epsilonOffsets[q + 1]; i++){
+                int target = epsilonTargets[i];
+                if (!set.get(target)){
+                    set.set(target);
+                    stack[top++] = target;
+                }
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Function that takes a set of states and a symbol and determines the next set of states,
+     * including everything reachable from it by epsilon transitions
+     *
+     * @param set set of current state ids
+     * @param symbol id of the symbol read
+     * @return set of next state ids
+     */
+
+    public BitSet move(BitSet set, int symbol){
+        BitSet result = new BitSet(names.length);
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)){
+            int i = offsets[q];
+            int end = offsets[q + 1];
+            while (i < end && edgeSymbols[i] < symbol)
+                i++;
+            for (; i < end && edgeSymbols[i] == symbol; i++)
+                result.set(edgeTargets[i]);
+        }
+        return closure(result);
+    }
+
+    /**
+     * Function that returns the DFA state name for a set of NFA states
+     *
+     * @param set set of state ids
+     * @return state names joined with '-', or "@" for the empty set
+     */
+
+    public String name(BitSet set){
+        if (set.isEmpty())
+            return "@";
+        StringBuilder name = new StringBuilder();
+        for (int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1)){
+            if (name.length() > 0)
+                name.append('-');
+            name.append(names[q]);
+        }
+        return name.toString();
+    }
+
+    /**
+     * Function that returns the id of a state
+     *
+     * @param name name of the state
+     * @return id of the state, or -1 if there is no such state
+     */
+
+    public int stateId(String name){
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Function that returns the id of a symbol
+     *
+     * @param symbol symbol of the alphabet
+     * @return id of the symbol, or -1 if it is not in the alphabet
+     */
+
+    public int symbolIndex(String symbol){
+        for (int i = 0; i < symbols.length; i++)
+            if (symbols[i].equals(symbol))
+                return i;
+        return -1;
+    }
+
+    /**
+     * Function that returns a symbol of the alphabet
+     *
+     * @param symbol id of the symbol
+     * @return the symbol
+     */
+
+    public String symbol(int symbol){
+        return symbols[symbol];
+    }
+
+    /**
+     * Function that returns the number of states in the NFA
+     *
+     * @return number of states
+     */
+
+    public int stateCount(){
+        return names.length;
+    }
+
+    /**
+     * Function that returns the number of symbols in the alphabet, excluding epsilon
+     *
+     * @return number of symbols
+     */
+
+    public int symbolCount(){
+        return symbols.length;
+    }
+}
@@ -42,6 +42,11 @@ public class NfaToDfa {
      */
     private Map<String, List<String>> delta = new HashMap<>();
 
+    /*
+      Transition function for the NFA packed into primitive arrays
+     */
+    private NfaTable nfa;
+
     /*
     Set of the possible states in the DFA
      */
@@ -63,9 +68,19 @@ public class NfaToDfa {
     private String s_;
 
     /*
-      Map containing all transition functions for the DFA
+      Off-heap table containing all transition functions for the DFA
+     */
+    private DfaTable delta_;
+
+    /*
+      Set of NFA states behind each DFA state, indexed by the order the DFA states were found
+     */
+    private List<BitSet> subsets = new ArrayList<>();
+
+    /*
+      Whether DFA states are named by number rather than by their NFA states
      */
-    private Map<String, String> delta_ = new HashMap<>();
+    private boolean compactNames = false;
 
     /**
      * Constructor for the NFA class. Reads the specified file, builds the NFA, then creates
@@ -82,8 +97,8 @@ public class NfaToDfa {
         int count = 0;
 
         while (scan.hasNextLine()){
-            line = scan.nextLine();
-            if (line.charAt(0) == '#')
+            line = scan.nextLine().trim();
+            if (line.isEmpty() || line.charAt(0) == '#')
                 continue;
             else
                 count++;
@@ -124,27 +139,53 @@ public class NfaToDfa {
             }
         }
         scan.close();
+        if (count < 4)
+            throw new IOException("incomplete NFA specification " + filename);
+        nfa = new NfaTable(Q, Sigma, delta);
     }
 
     /**
-     * Takes user input, then converts and outputs the specified NFAs equivalent DFA
+     * Takes user input, then converts and outputs the specified NFAs equivalent DFA.
+     * With -n the DFA states are numbered instead of named after their NFA states,
+     * -m mapFile also writes the NFA states behind each number to mapFile, and -t
+     * removes the dead states, leaving a partial DFA
      *
      * @param args Possible commandline arguments
      */
 
     public static void main(String[] args){
+        boolean compact = false;
+        boolean trim = false;
+        String mapFileName = null;
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("-n"))
+                compact = true;
+            else if (args[i].equals("-t"))
+                trim = true;
+            else if (args[i].equals("-m") && i + 1 < args.length){
+                compact = true;
+                mapFileName = args[++i];
+            }
+        }
         Scanner scanner = new Scanner(System.in);
         System.out.print("NFA Specification file name: ");
         String fileName = scanner.nextLine();
         try{
             NfaToDfa nfa1 = new NfaToDfa(fileName);
+            nfa1.setCompactNames(compact);
             nfa1.printNfa();
             nfa1.convertNfa();
+            if (trim)
+                nfa1.trimDeadStates();
             nfa1.printDfa();
             System.out.print("Output file name (Equivalent DFA): ");
             String outputFileName = scanner.nextLine();
             nfa1.outputDfa(outputFileName);
             System.out.println("Writing to file: " + outputFileName);
+            if (mapFileName != null){
+                nfa1.outputStateMap(mapFileName);
+                System.out.println("Writing state map to file: " + mapFileName);
+            }
         } catch (IOException e){
             e.printStackTrace();
         }
@@ -228,24 +269,27 @@ public class NfaToDfa {
     }
 
     /**
-     * Function that takes a Map and returns its String representation
+     * Function that takes a transition table and returns its String representation
      *
-     * @param map Map to be printed
+     * @param table DfaTable to be printed
      * @return String representation of table
      */
 
-    public String dfaStateBuilder(Map<String, String> map){
-        String line = "{";
-        int count = 0;
-        int size = map.size();
-        for (String s : map.keySet()) {
-            count++;
-            line += "'" + s + "': " + "'" + map.get(s) + "'";
-            if (count < size)
-                line += ", ";
+    public String dfaStateBuilder(DfaTable table){
+        StringBuilder line = new StringBuilder("{");
+        for (int q = 0; q < table.stateCount(); q++) {
+            for (int a = 0; a < table.symbolCount(); a++) {
+                int next = table.next(q, a);
+                if (next == DfaTable.NONE)
+                    continue;
+                if (line.length() > 1)
+                    line.append(", ");
+                line.append("'").append(table.stateName(q)).append(",").append(table.symbol(a)).append("': '")
+                        .append(table.stateName(next)).append("'");
+            }
         }
-        line += "}";
-        return line;
+        line.append("}");
+        return line.toString();
     }
 
     /**
@@ -253,52 +297,10 @@ public class NfaToDfa {
      */
 
     public void convertNfa(){
-        Set<Set<String>> states = dfaStates(Q);
-        String state;
-        for (Set<String> set: states){
-            List<String> stateList = new ArrayList<>(set);
-            Collections.sort(stateList);
-            state = String.join("-", stateList);
-            Q_.add(state);
-        }
-
-        if (Q_.contains("")){
-            Q_.remove("");
-            Q_.add("@");
-        }
-        s_ = E(s);
         alphabetBuilder();
-        F_ = acceptStates(F, Q_);
         transitionBuilder();
     }
 
-    /**
-     * Function that takes the set of NFA states and returns the set of states
-     * for the equivalent DFA
-     *
-     * @param nfaStates Set of states in the NFA
-     * @return Set of states in the equivalent DFA
-     */
-
-    public Set<Set<String>> dfaStates(Set<String> nfaStates){
-        Set<Set<String>> states = new HashSet<>();
-        if (nfaStates.isEmpty()){
-            states.add(new HashSet<>());
-            return states;
-        }
-        List<String> list = new ArrayList<>(nfaStates);
-        String head = list.get(0);
-        Set<String> rest = new HashSet<>(list.subList(1, list.size()));
-        for (Set<String> set : dfaStates(rest)){
-            Set<String> newSet = new HashSet<>();
-            newSet.add(head);
-            newSet.addAll(set);
-            states.add(newSet);
-            states.add(set);
-        }
-        return states;
-    }
-
     /**
      * Function that returns a state representing all reachable states from a
      * specified state using an epsilon transition
@@ -308,38 +310,12 @@ public class NfaToDfa {
      */
 
     public String E(String state){
-        String result = state;
-        String key = state + ",.";
-        if (delta.containsKey(key)){
-            List<String> list = delta.get(key);
-            for (String s: list) {
-                result += " " + E(s);
-            }
-            String[] lineSplit = result.split("\\s+");
-            result = String.join("-", lineSplit);
-        }
-        return result;
-    }
-
-    /**
-     * Function that returns the set of accept states for the DFA
-     *
-     * @param nfaStates set of accept states for the NFA
-     * @param dfaStates set of states for the DFA
-     * @return set of accept states for the DFA
-     */
-
-    public Set<String> acceptStates(Set<String> nfaStates, Set<String> dfaStates){
-        Set<String> accept = new HashSet<>();
-        if (nfaStates != null) {
-            for (String s : nfaStates) {
-                for (String s1 : dfaStates) {
-                    if (s1.contains(s) || s1.equals(s))
-                        accept.add(s1);
-                }
-            }
-        }
-        return accept;
+        int id = nfa.stateId(state);
+        if (id < 0)
+            return state;
+        BitSet set = new BitSet();
+        set.set(id);
+        return nfa.name(nfa.closure(set));
     }
 
     /**
@@ -357,36 +333,106 @@ public class NfaToDfa {
      */
 
     public void transitionBuilder(){
-        LinkedList<String> toVisit = new LinkedList<>();
-        toVisit.add(s_);
-        Set<String> visited = new HashSet<>();
-        String currentState, newState;
-        while(!toVisit.isEmpty()){
-            currentState = toVisit.remove();
-            visited.add(currentState);
-            if (Sigma_ != null){
-                for (String s: Sigma_){
-                    newState = getNextState(currentState, s);
-                    String key = currentState + "," + s;
-                    delta_.put(key, newState);
-                    if (!visited.contains(newState) && !toVisit.contains(newState))
-                        toVisit.add(newState);
+        delta_ = new DfaTable(Sigma_ != null ? Sigma_ : Collections.emptySet());
+        int[] symbols = new int[delta_.symbolCount()];
+        for (int a = 0; a < symbols.length; a++)
+            symbols[a] = nfa.symbolIndex(delta_.symbol(a));
+        BitSet accept = new BitSet();
+        if (F != null)
+            for (String f : F)
+                if (nfa.stateId(f) >= 0)
+                    accept.set(nfa.stateId(f));
+
+        Map<BitSet, Integer> ids = new HashMap<>();
+        subsets = new ArrayList<>();
+        BitSet start = new BitSet();
+        if (nfa.stateId(s) >= 0)
+            start.set(nfa.stateId(s));
+        nfa.closure(start);
+        subsets.add(start);
+        ids.put(start, 0);
+        s_ = stateName(start, 0);
+        delta_.setStart(delta_.addState(s_));
+        delta_.setAccept(0, start.intersects(accept));
+        BitSet newSet;
+        Integer next;
+        for (int current = 0; current < subsets.size(); current++){
+            for (int a = 0; a < symbols.length; a++){
+                newSet = symbols[a] < 0 ? new BitSet() : nfa.move(subsets.get(current), symbols[a]);
+                next = ids.get(newSet);
+                if (next == null){
+                    next = delta_.addState(stateName(newSet, subsets.size()));
+                    delta_.setAccept(next, newSet.intersects(accept));
+                    ids.put(newSet, next);
+                    subsets.add(newSet);
                 }
+                delta_.setTransition(current, a, next);
             }
         }
+        delta_.freeze();
+        collectStates();
+    }
+
+    /**
+     * Function that names a newly found DFA state
+     *
+     * @param subset set of NFA states behind the DFA state
+     * @param id number of DFA states found before this one
+     * @return the number of the state in compact mode, otherwise its NFA states joined with '-'
+     */
+
+    private String stateName(BitSet subset, int id){
+        return compactNames ? Integer.toString(id) : nfa.name(subset);
+    }
+
+    /**
+     * Function that rebuilds the set of states and the set of accept states from the DFA's table
+     */
+
+    private void collectStates(){
         Set<String> tempQ = new HashSet<>();
         Set<String> tempF = new HashSet<>();
-        List<String> list = new ArrayList<>(visited);
-        Collections.sort(list);
-        for (String s: list){
-            tempQ.add(s);
-            if (F_.contains(s))
-                tempF.add(s);
+        for (int q = 0; q < delta_.stateCount(); q++){
+            tempQ.add(delta_.stateName(q));
+            if (delta_.isAccept(q))
+                tempF.add(delta_.stateName(q));
         }
         Q_ = tempQ;
         F_ = tempF;
     }
 
+    /**
+     * Function that removes the DFA states from which no accept state can be reached,
+     * along with every transition into them. The start state is always kept. The
+     * result is partial, so a spec written afterwards has no transitions into the
+     * removed states and Dfa1 reports those as missing instead of rejecting
+     */
+
+    public void trimDeadStates(){
+        delta_ = delta_.trim();
+        collectStates();
+    }
+
+    /**
+     * Function that replaces the DFA with an equivalent one with the fewest states
+     */
+
+    public void minimizeDfa(){
+        delta_ = delta_.minimize();
+        s_ = delta_.stateName(delta_.getStart());
+        collectStates();
+    }
+
+    /**
+     * Function that returns the transition table of the DFA
+     *
+     * @return the DFA's transition table, or null before convertNfa is called
+     */
+
+    public DfaTable getDfaTable(){
+        return delta_;
+    }
+
     /**
      * Function that takes a state and a symbol and determines the next state
      *
@@ -396,24 +442,27 @@ public class NfaToDfa {
      */
 
     public String getNextState(String current, String symbol) {
-        Set<String> stateSet = new HashSet<>();
-        String[] states = current.split("-+");
-        for (String s : states) {
-            String key = s + "," + symbol;
-            if (delta.containsKey(key)) {
-                List<String> stateList = delta.get(key);
-                for (String s1 : stateList) {
-                    String[] splitList = E(s1).split("-+");
-                    Collections.addAll(stateSet, splitList);
-                }
-            }
-        }
-        List<String> list = new ArrayList<>(stateSet);
-        Collections.sort(list);
-        if (list.isEmpty())
+        int id = nfa.symbolIndex(symbol);
+        if (id < 0)
             return "@";
-        else
-            return String.join("-", list);
+        return nfa.name(nfa.move(stateSet(current), id));
+    }
+
+    /**
+     * Function that takes the name of a DFA state and returns the set of NFA states it represents
+     *
+     * @param state name of a DFA state
+     * @return set of NFA state ids
+     */
+
+    private BitSet stateSet(String state){
+        BitSet set = new BitSet();
+        for (String s : state.split("-+")) {
+            int id = nfa.stateId(s);
+            if (id >= 0)
+                set.set(id);
+        }
+        return set;
     }
 
     /**
@@ -469,6 +518,47 @@ public class NfaToDfa {
         }
     }
 
+    /**
+     * Function that formats the mapping from compact DFA state names to NFA states
+     *
+     * @param outputName output file name
+     * @return formatted output
+     */
+
+    public String stateMapOutput(String outputName){
+        StringBuilder output = new StringBuilder("# File: " + outputName);
+        output.append("\n# DFA state - the NFA states it represents");
+        for (int q = 0; q < delta_.stateCount(); q++){
+            String name = delta_.stateName(q);
+            BitSet subset = compactNames ? subsets.get(Integer.parseInt(name)) : stateSet(name);
+            output.append("\n").append(name).append(" ").append(nfa.name(subset));
+        }
+        return output.toString();
+    }
+
+    /**
+     * Function that outputs the mapping from DFA state names to NFA states to a specified file
+     *
+     * @param outputFileName specified file name
+     */
+
+    public void outputStateMap(String outputFileName) throws IOException{
+        try (FileWriter fr = new FileWriter(outputFileName)){
+            fr.write(stateMapOutput(outputFileName));
+        }
+    }
+
+    /**
+     * Function that sets whether DFA states are numbered rather than named after
+     * their NFA states. Must be called before convertNfa
+     *
+     * @param compactNames true to number the DFA states
+     */
+
+    public void setCompactNames(boolean compactNames){
+        this.compactNames = compactNames;
+    }
+
     /**
      * Function that formats the output being written to the output file
      *
@@ -477,29 +567,30 @@ public class NfaToDfa {
      */
 
     public String fileOutput(String outputName){
-        String output = "# File: " + outputName + "\n# DFA";
-        output += "\n# Q_ - the set of states";
-        output += "\n" + String.join(" ", Q_);
-        output += "\n# Sigma_ - the alphabet";
+        StringBuilder output = new StringBuilder("# File: " + outputName + "\n# DFA");
+        output.append("\n# Q_ - the set of states");
+        output.append("\n").append(String.join(" ", Q_));
+        output.append("\n# Sigma_ - the alphabet");
         if (Sigma_ != null)
-            output += "\n" + String.join(" ", Sigma_);
+            output.append("\n").append(String.join(" ", Sigma_));
         else
-            output += "\n@";
-        output += "\n# q_0_ - the start state";
-        output += "\n" + s_;
-        output += "\n# F_ - the set of accept states";
+            output.append("\n@");
+        output.append("\n# q_0_ - the start state");
+        output.append("\n").append(s_);
+        output.append("\n# F_ - the set of accept states");
         if (F_.isEmpty())
-            output += "\n@";
+            output.append("\n@");
         else
-            output += "\n" + String.join(" ", F_);
-        output += "\n# delta_ - the transition function";
-        for (String key: delta_.keySet()){
-            String[] splitList = key.split(",");
-            List<String> list = new ArrayList<>();
-            Collections.addAll(list, splitList);
-            list.add(delta_.get(key));
-            output += "\n" + String.join(" ", list);
+            output.append("\n").append(String.join(" ", F_));
+        output.append("\n# delta_ - the transition function");
+        for (int q = 0; q < delta_.stateCount(); q++){
+            for (int a = 0; a < delta_.symbolCount(); a++){
+                int next = delta_.next(q, a);
+                if (next != DfaTable.NONE)
+                    output.append("\n").append(delta_.stateName(q)).append(" ").append(delta_.symbol(a))
+                            .append(" ").append(delta_.stateName(next));
+            }
         }
-        return output;
+        return output.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class that compares single-step matching against multi-stride matching
+ *
+ * Both stride rows use the same on-heap StrideTable layout, one built with stride 1,
+ * so the reported speedup measures striding alone. The off-heap DfaTable row is
+ * listed for reference.
+ *
+ * Usage: java StrideBenchmark [spec [length [rounds]]]
+ *
+ * Without a specification file it uses a DFA accepting binary numbers divisible by 7,
+ * which never enters a dead or absorbing state, so every symbol of the input is read.
+ */
+
+public class StrideBenchmark {
+
+    /**
+     * Runs the benchmark and prints the throughput of each matcher
+     *
+     * @param args optional DFA specification file, input length and number of timed rounds
+     */
+
+    public static void main(String[] args){
+        DfaTable table = args.length > 0 ? new Dfa(args[0]).getTable() : divisibleBy(7);
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        if (table == null || table.symbolCount() == 0){
+            System.out.println("DFA needs a non-empty alphabet");
+            return;
+        }
+        StrideTable strideTable = new StrideTable(table);
+        // a zero budget leaves no room for tuples, so this table takes one symbol per lookup
+        StrideTable singleStep = new StrideTable(table, 0);
+        System.out.println("states = " + table.stateCount() + ", symbols = " + table.symbolCount()
+                + ", stride = " + strideTable.getStride());
+
+        Random random = new Random(262);
+        for (int i = 0; i < 10_000; i++){
+            String input = randomInput(table, random, random.nextInt(64));
+            boolean expected = table.accepts(input);
+            if (expected != strideTable.accepts(input) || expected != singleStep.accepts(input)){
+                System.out.println("mismatch on input " + input);
+                return;
+            }
+        }
+
+        String input = randomInput(table, random, length);
+        long offHeap = time(() -> table.accepts(input), rounds);
+        long single = time(() -> singleStep.accepts(input), rounds);
+        long strided = time(() -> strideTable.accepts(input), rounds);
+        print("off-heap table:", offHeap, length);
+        print("stride 1:", single, length);
+        print("stride " + strideTable.getStride() + ":", strided, length);
+        System.out.printf("speedup of stride %d over stride 1: %.2fx%n", strideTable.getStride(),
+                (double) single / strided);
+    }
+
+    /**
+     * Function that prints the throughput of one matcher
+     *
+     * @param label name of the matcher
+     * @param time median time of one round, in nanoseconds
+     * @param length number of symbols matched per round
+     */
+
+    private static void print(String label, long time, int length){
+        System.out.printf("%-16s %8.3f ns/symbol (%.1f M symbols/s)%n", label, (double) time / length,
+                length * 1e3 / time);
+    }
+
+    /**
+     * Function that returns the median time of a matcher over several rounds, after warming it up
+     *
+     * @param matcher matcher to time
+     * @param rounds number of timed rounds
+     * @return median time of one round, in nanoseconds
+     */
+
+    private static long time(BooleanSupplier matcher, int rounds){
+        boolean sink = false;
+        for (int i = 0; i < 5; i++)
+            sink ^= matcher.getAsBoolean();
+        long[] times = new long[rounds];
+        for (int i = 0; i < rounds; i++){
+            long start = System.nanoTime();
+            sink ^= matcher.getAsBoolean();
+            times[i] = System.nanoTime() - start;
+        }
+        if (sink)
+            System.out.print("");
+        Arrays.sort(times);
+        return times[rounds / 2];
+    }
+
+    /**
+     * Function that builds a random string over the DFA's alphabet
+     *
+     * @param table DFA whose alphabet is used
+     * @param random source of randomness
+     * @param length length of the string
+     * @return the string
+     */
+
+    private static String randomInput(DfaTable table, Random random, int length){
+        char[] input = new char[length];
+        for (int i = 0; i < length; i++)
+            input[i] = table.symbol(random.nextInt(table.symbolCount())).charAt(0);
+        return new String(input);
+    }
+
+    /**
+     * Function that builds a DFA accepting the binary numbers divisible by m
+     *
+     * @param m the divisor
+     * @return the DFA's transition table
+     */
+
+    private static DfaTable divisibleBy(int m){
+        DfaTable table = new DfaTable(Arrays.asList("0", "1"));
+        for (int r = 0; r < m; r++)
+            table.addState("r" + r);
+        for (int r = 0; r < m; r++){
+            table.setTransition(r, 0, (2 * r) % m);
+            table.setTransition(r, 1, (2 * r + 1) % m);
+        }
+        table.setStart(0);
+        table.setAccept(0, true);
+        table.freeze();
+        return table;
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+/**
+ * Class representing a DFA compiled to consume k symbols per transition
+ *
+ * The table holds δ^k for every state and every k-tuple of symbols, so matching
+ * does one dependent lookup per k input symbols plus at most k - 1 single steps
+ * at the end. k is picked as large as possible while the table still fits in a
+ * cache budget. Missing transitions go to an extra sink state. A match stops
+ * at a dead state, and at an absorbing state only checks that the rest of the
+ * input is in the alphabet.
+ */
+
+public class StrideTable {
+
+    /*
+      Default cache budget for the stride table, in bytes
+     */
+    public static final int DEFAULT_BUDGET = 256 << 10;
+
+    /*
+      Largest stride considered
+     */
+    private static final int MAX_STRIDE = 16;
+
+    /*
+      Number of symbols consumed per lookup
+     */
+    private final int k;
+
+    /*
+      Number of symbols in the alphabet
+     */
+    private final int sigma;
+
+    /*
+      Number of k-tuples of symbols, sigma^k
+     */
+    private final int width;
+
+    /*
+      Single-step transition function, sigma entries per state
+     */
+    private final int[] step;
+
+    /*
+      k-step transition function, width entries per state
+     */
+    private final int[] stride;
+
+    /*
+      Map from input character to symbol id, -1 for characters not in the alphabet
+     */
+    private final int[] charIndex;
+
+    /*
+      Whether each state is an accept state
+     */
+    private final boolean[] accept;
+
+    /*
+      Whether each state is dead, including the sink
+     */
+    private final boolean[] dead;
+
+    /*
+      Whether each state is an absorbing accept state
+     */
+    private final boolean[] absorbing;
+
+    /*
+      Id of the start state
+     */
+    private final int start;
+
+    /**
+     * Constructor for the StrideTable class, using the default cache budget
+     *
+     * @param table DFA to compile
+     */
+
+    public StrideTable(DfaTable table){
+        this(table, DEFAULT_BUDGET);
+    }
+
+    /**
+     * Constructor for the StrideTable class. The table is frozen if it is not already
+     *
+     * @param table DFA to compile
+     * @param budget largest size of the stride table, in bytes, a budget of 0 gives stride 1
+     */
+
+    public StrideTable(DfaTable table, long budget){
+        table.freeze();
+        int n = table.stateCount();
+        int sink = n;
+        sigma = table.symbolCount();
+        start = table.getStart() == DfaTable.NONE ? sink : table.getStart();
+
+        step = new int[(n + 1) * sigma];
+        accept = new boolean[n + 1];
+        dead = new boolean[n + 1];
+        absorbing = new boolean[n + 1];
+        for (int q = 0; q < n; q++){
+            for (int a = 0; a < sigma; a++){
+                int next = table.next(q, a);
+                step[q * sigma + a] = next == DfaTable.NONE ? sink : next;
+            }
+            accept[q] = table.isAccept(q);
+            dead[q] = table.isDead(q);
+            absorbing[q] = table.isAbsorbing(q);
+        }
+        Arrays.fill(step, n * sigma, (n + 1) * sigma, sink);
+        dead[sink] = true;
+
+        int max = 0;
+        for (int a = 0; a < sigma; a++)
+            if (table.symbol(a).length() == 1)
+                max = Math.max(max, table.symbol(a).charAt(0));
+        charIndex = new int[max + 1];
+        for (int c = 0; c <= max; c++)
+            charIndex[c] = table.symbolIndex((char) c);
+
+        k = chooseStride(n + 1, sigma, budget);
+        int tuples = 1;
+        for (int j = 0; j < k && sigma > 0; j++)
+            tuples *= sigma;
+        width = tuples;
+        stride = new int[(n + 1) * width];
+        for (int q = 0; q <= n && sigma > 0; q++){
+            for (int tuple = 0; tuple < width; tuple++){
+                // the first symbol of the tuple is its most significant digit
+                int state = q;
+                for (int p = width / sigma; p > 0; p /= sigma)
+                    state = step[state * sigma + (tuple / p) % sigma];
+                stride[q * width + tuple] = state;
+            }
+        }
+    }
+
+    /**
+     * Function that picks the largest stride whose table fits in the budget
+     *
+     * @param states number of states, including the sink
+     * @param sigma number of symbols in the alphabet
+     * @param budget largest size of the stride table, in bytes
+     * @return the stride, at least 1
+     */
+
+    public static int chooseStride(int states, int sigma, long budget){
+        if (sigma < 2)
+            return 1;
+        int k = 1;
+        long size = (long) states * sigma * 4;
+        while (k < MAX_STRIDE && size * sigma <= budget && size * sigma <= Integer.MAX_VALUE){
+            size *= sigma;
+            k++;
+        }
+        return k;
+    }
+
+    /**
+     * Function that returns the number of symbols consumed per lookup
+     *
+     * @return the stride
+     */
+
+    public int getStride(){
+        return k;
+    }
+
+    /**
+     * Function that runs the DFA on an input string
+     *
+     * @param input string to be matched
+     * @return true if the DFA accepts the input
+     */
+
+    public boolean accepts(CharSequence input){
+        int length = input.length();
+        int state = start;
+        int i = 0;
+        strides:
+        for (; i + k <= length; i += k){
+            if (dead[state])
+                return false;
+            if (absorbing[state])
+                return inAlphabet(input, i);
+            int tuple = 0;
+            for (int j = 0; j < k; j++){
+                int symbol = symbolIndex(input.charAt(i + j));
+                // finish with single steps so the match can still end early before the bad symbol
+                if (symbol < 0)
+                    break strides;
+                tuple = tuple * sigma + symbol;
+            }
+            state = stride[state * width + tuple];
+        }
+        for (; i < length && !dead[state]; i++){
+            if (absorbing[state])
+                return inAlphabet(input, i);
+            int symbol = symbolIndex(input.charAt(i));
+            if (symbol < 0)
+                return false;
+            state = step[state * sigma + symbol];
+        }
+        return accept[state];
+    }
+
+    /**
+     * Function that returns whether every character from a position on is in the alphabet
+     *
+     * @param input string being matched
+     * @param from index of the first character to check
+     * @return true if no character from the position on is outside the alphabet
+     */
+
+    private boolean inAlphabet(CharSequence input, int from){
+        for (int i = from; i < input.length(); i++)
+            if (symbolIndex(input.charAt(i)) < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Function that returns the id of the symbol for an input character
+     *
+     * @param c input character
+     * @return id of the symbol, or -1 if c is not in the alphabet
+     */
+
+    private int symbolIndex(char c){
+        return c < charIndex.length ? charIndex[c] : -1;
+    }
+}
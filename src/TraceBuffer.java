@@ -0,0 +1,138 @@
+import java.io.PrintStream;
+import java.util.function.IntFunction;
+
+/**
+ * Class representing a preallocated ring buffer of DFA transitions
+ *
+ * Each transition is recorded as four ints (position, fromState, symbol, toState)
+ * without allocating or formatting anything, so tracing costs little more than
+ * matching. Once the buffer is full the oldest transitions are overwritten.
+ * Formatting happens only when the trace is printed.
+ */
+
+public class TraceBuffer {
+
+    /*
+      Number of ints stored per transition
+     */
+    private static final int WIDTH = 4;
+
+    /*
+      Recorded transitions, WIDTH ints each
+     */
+    private final int[] entries;
+
+    /*
+      Number of transitions the buffer can hold
+     */
+    private final int capacity;
+
+    /*
+      Total number of transitions recorded since the last clear
+     */
+    private long recorded = 0;
+
+    /**
+     * Constructor for the TraceBuffer class
+     *
+     * @param capacity number of transitions kept before the oldest are overwritten
+     */
+
+    public TraceBuffer(int capacity){
+        if (capacity <= 0)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        entries = new int[capacity * WIDTH];
+    }
+
+    /**
+     * Function that records a single transition
+     *
+     * @param position index of the symbol in the input
+     * @param from state before reading the symbol
+     * @param symbol symbol read
+     * @param to state after reading the symbol
+     */
+
+    public void record(int position, int from, int symbol, int to){
+        int i = (int) (recorded % capacity) * WIDTH;
+        entries[i] = position;
+        entries[i + 1] = from;
+        entries[i + 2] = symbol;
+        entries[i + 3] = to;
+        recorded++;
+    }
+
+    /**
+     * Function that discards every recorded transition
+     */
+
+    public void clear(){
+        recorded = 0;
+    }
+
+    /**
+     * Function that returns the number of transitions currently held
+     *
+     * @return number of transitions held
+     */
+
+    public int size(){
+        return (int) Math.min(recorded, capacity);
+    }
+
+    /**
+     * Function that returns the number of transitions overwritten since the last clear
+     *
+     * @return number of transitions dropped
+     */
+
+    public long dropped(){
+        return recorded - size();
+    }
+
+    /**
+     * Function that returns a field of a held transition, oldest first
+     *
+     * @param index index of the transition, 0 is the oldest held
+     * @param field 0 for position, 1 for fromState, 2 for symbol, 3 for toState
+     * @return value of the field
+     */
+
+    public int get(int index, int field){
+        long start = recorded - size();
+        return entries[(int) ((start + index) % capacity) * WIDTH + field];
+    }
+
+    /**
+     * Function that prints the held transitions, oldest first, as "from<separator>symbol -> to"
+     *
+     * @param out stream to print to
+     * @param stateName maps a state id to its name
+     * @param symbolName maps a symbol id to its name
+     * @param separator text printed between the state and the symbol
+     */
+
+    public void print(PrintStream out, IntFunction<String> stateName, IntFunction<String> symbolName, String separator){
+        if (dropped() > 0)
+            out.println("... " + dropped() + " earlier transitions dropped");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < size(); i++){
+            line.setLength(0);
+            line.append(stateName.apply(get(i, 1))).append(separator).append(symbolName.apply(get(i, 2)))
+                    .append(" -> ").append(stateName.apply(get(i, 3)));
+            out.println(line);
+        }
+    }
+
+    /**
+     * Function that prints the held transitions using the names in a DFA table
+     *
+     * @param out stream to print to
+     * @param table table the transitions were recorded against
+     */
+
+    public void print(PrintStream out, DfaTable table){
+        print(out, table::stateName, table::symbol, ", ");
+    }
+}